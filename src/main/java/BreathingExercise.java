@@ -0,0 +1,16 @@
+class BreathingExercise extends Exercise {
+    public BreathingExercise() {
+        this.name = "Deep Breathing";
+        this.description = "Calm your mind with breathing";
+        this.duration = 5;
+    }
+
+    @Override
+    public String execute() {
+        return "🌬 Deep Breathing Exercise:\n" +
+                "1. Breathe in deeply for 4 seconds\n" +
+                "2. Hold for 4 seconds\n" +
+                "3. Breathe out for 4 seconds\n" +
+                "4. Repeat 5 times";
+    }
+}
@@ -0,0 +1,114 @@
+// A committed change as downstream consumers (analytics, caches, replicas) see it.
+// Immutable once published; ChangeStream stamps the sequence number as it publishes.
+// Password hashes are never part of an event.
+abstract class ChangeEvent {
+    private final String username;
+    private final long timestamp;
+    // set once by ChangeStream.publish, before any reader can see the event
+    private long sequence = -1;
+
+    ChangeEvent(String username) {
+        this.username = username;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    // epoch milliseconds, when the change was made
+    public long getTimestampMillis() {
+        return timestamp;
+    }
+
+    static final class Registered extends ChangeEvent {
+        Registered(String username) {
+            super(username);
+        }
+    }
+
+    static final class MoodLogged extends ChangeEvent {
+        private final MoodEntry entry;
+
+        MoodLogged(String username, MoodEntry entry) {
+            super(username);
+            this.entry = entry;
+        }
+
+        public MoodEntry getEntry() {
+            return entry;
+        }
+    }
+
+    static final class ExerciseCompleted extends ChangeEvent {
+        private final String exercise;
+        private final long epochSeconds;
+        private final int duration;
+
+        ExerciseCompleted(String username, String exercise, long epochSeconds, int duration) {
+            super(username);
+            this.exercise = exercise;
+            this.epochSeconds = epochSeconds;
+            this.duration = duration;
+        }
+
+        public String getExercise() {
+            return exercise;
+        }
+
+        public long getEpochSeconds() {
+            return epochSeconds;
+        }
+
+        public int getDuration() {
+            return duration;
+        }
+    }
+
+    static final class GoalChanged extends ChangeEvent {
+        private final String goal;
+
+        GoalChanged(String username, String goal) {
+            super(username);
+            this.goal = goal;
+        }
+
+        public String getGoal() {
+            return goal;
+        }
+    }
+
+    static final class ExerciseStyleChanged extends ChangeEvent {
+        private final int exerciseStyle;
+
+        ExerciseStyleChanged(String username, int exerciseStyle) {
+            super(username);
+            this.exerciseStyle = exerciseStyle;
+        }
+
+        public int getExerciseStyle() {
+            return exerciseStyle;
+        }
+    }
+
+    static final class PostAdded extends ChangeEvent {
+        private final CommunityPost post;
+
+        PostAdded(CommunityPost post) {
+            super(post.getUser().getUsername());
+            this.post = post;
+        }
+
+        public CommunityPost getPost() {
+            return post;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+interface ChangeListener {
+    void onEvent(ChangeEvent event);
+
+    // sequences first up to, not including, next were overwritten before this listener
+    // read them; anything built from the stream should resync. first is past next when the
+    // listener asked for an offset this run never reached, one saved before a crash say,
+    // and delivery carries on from next
+    default void onGap(long first, long next) {
+    }
+}
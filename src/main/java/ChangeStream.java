@@ -0,0 +1,245 @@
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// singleton
+// Every committed mutation, in commit order, in a fixed ring holding the latest events.
+// A writer claims a sequence number with one atomic increment and stores the event in its
+// slot; it never waits for a reader. Readers go at their own pace from any sequence still
+// in the ring. One that falls a whole ring behind is told which sequences it lost and
+// carries on from the oldest event still held, so it can resync, from an export say.
+// Events for one user are published under the user's write lock and so keep their order.
+// Every event is published after a log record of its own, so a run that starts its
+// sequences past the last LSN in the log never reuses one an earlier run handed out,
+// and an offset saved before a restart reads as a gap. Log replay and bulk imports
+// publish nothing.
+class ChangeStream {
+    static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 256;
+    // upper bound on a subscriber's sleep, in case a writer stalls between claim and store
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final Counter EVENTS_PUBLISHED = Metrics.getInstance()
+            .counter("mindwell_change_events_total", "Changes published to the change stream");
+    private static final Counter EVENTS_MISSED = Metrics.getInstance()
+            .counter("mindwell_change_events_missed_total", "Change events subscribers lost by falling a whole ring behind");
+    private static final Counter LISTENER_FAILURES = Metrics.getInstance()
+            .counter("mindwell_change_listener_failures_total", "Change events and gaps a subscriber threw on");
+
+    private volatile AtomicReferenceArray<ChangeEvent> ring = new AtomicReferenceArray<>(DEFAULT_CAPACITY);
+    private final AtomicLong nextSequence = new AtomicLong();
+    private volatile long firstSequence;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private ChangeStream() {
+    }
+
+    public static ChangeStream getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final ChangeStream INSTANCE = new ChangeStream();
+    }
+
+    // rounded up to a power of two. Meant for startup: events already held are dropped
+    public void configure(int capacity) {
+        ring = new AtomicReferenceArray<>(Integer.highestOneBit(Math.max(2, capacity) * 2 - 1));
+    }
+
+    // the sequence this run starts at; must be set before anything is published
+    public synchronized void startAt(long sequence) {
+        if (nextSequence.get() != firstSequence) {
+            throw new IllegalStateException("Change events were already published");
+        }
+        firstSequence = sequence;
+        nextSequence.set(sequence);
+    }
+
+    public void publish(ChangeEvent event) {
+        long sequence = nextSequence.getAndIncrement();
+        event.setSequence(sequence);
+        AtomicReferenceArray<ChangeEvent> slots = ring;
+        int slot = (int) sequence & (slots.length() - 1);
+        while (true) {
+            ChangeEvent previous = slots.get(slot);
+            // a writer lapped between its claim and its store drops its event rather than
+            // put back an older one; readers see that as a gap
+            if (previous != null && previous.getSequence() > sequence) {
+                break;
+            }
+            if (slots.compareAndSet(slot, previous, event)) {
+                break;
+            }
+        }
+        EVENTS_PUBLISHED.increment();
+        for (Subscription subscription : subscriptions) {
+            subscription.wake();
+        }
+    }
+
+    // the sequence the next event will get; reading from here sees only what comes after
+    public long getNextSequence() {
+        return nextSequence.get();
+    }
+
+    // the oldest sequence the ring still holds
+    public long getOldestSequence() {
+        return Math.max(firstSequence, nextSequence.get() - ring.length());
+    }
+
+    // Adds up to max events to out, oldest first, starting at sequence from, and returns the
+    // sequence to read from next. Events already overwritten are skipped, so the first one
+    // read has a higher sequence than from when some were lost; the events returned are
+    // always consecutive. Stops at an event that has been claimed but not stored yet, so
+    // nothing is ever delivered out of order. A from past the next sequence was never handed
+    // out by this run, e.g. one saved before a crash lost the log's tail, and reads from the
+    // next sequence on.
+    public long read(long from, int max, List<ChangeEvent> out) {
+        AtomicReferenceArray<ChangeEvent> slots = ring;
+        int mask = slots.length() - 1;
+        long next = Math.min(Math.max(from, getOldestSequence()), nextSequence.get());
+        int read = 0;
+        while (read < max && next < nextSequence.get()) {
+            ChangeEvent event = slots.get((int) next & mask);
+            if (event == null || event.getSequence() < next) {
+                break;
+            }
+            if (event.getSequence() > next) {
+                // overwritten: a gap only ever shows at the start of what one call returns
+                if (read > 0) {
+                    break;
+                }
+                next = Math.max(next + 1, getOldestSequence());
+                continue;
+            }
+            out.add(event);
+            next++;
+            read++;
+        }
+        return next;
+    }
+
+    // Delivers every event from sequence from on to listener, in order, on a daemon thread
+    // of its own. A listener that throws loses that event, not the subscription.
+    public Subscription subscribe(String name, long from, ChangeListener listener) {
+        Subscription subscription = new Subscription(name, from, listener);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    // how far the slowest subscriber is behind, in events
+    public long getMaxLag() {
+        long lag = 0;
+        for (Subscription subscription : subscriptions) {
+            lag = Math.max(lag, subscription.getLag());
+        }
+        return lag;
+    }
+
+    // true when the event at sequence is stored, or was overwritten and can be skipped
+    private boolean readable(long sequence) {
+        if (sequence >= nextSequence.get()) {
+            return false;
+        }
+        AtomicReferenceArray<ChangeEvent> slots = ring;
+        ChangeEvent event = slots.get((int) sequence & (slots.length() - 1));
+        return event != null && event.getSequence() >= sequence;
+    }
+
+    class Subscription {
+        private final ChangeListener listener;
+        private final Thread thread;
+        private volatile long position;
+        private volatile boolean waiting;
+        private volatile boolean closed;
+        private final AtomicLong missed = new AtomicLong();
+
+        // an offset past anything this run handed out, reported once before the first read
+        private final long unreached;
+
+        private Subscription(String name, long from, ChangeListener listener) {
+            this.listener = listener;
+            // fixed here, not on the first read, so nothing published after subscribe is skipped
+            this.position = Math.min(from, nextSequence.get());
+            this.unreached = from;
+            thread = new Thread(this::run, "change-stream-" + name);
+            thread.setDaemon(true);
+        }
+
+        // the next sequence this subscriber will read
+        public long getPosition() {
+            return position;
+        }
+
+        public long getLag() {
+            return Math.max(0, nextSequence.get() - position);
+        }
+
+        public long getMissed() {
+            return missed.get();
+        }
+
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+        }
+
+        private void wake() {
+            if (waiting) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void run() {
+            if (unreached > position) {
+                try {
+                    // how much the earlier run published past here is unknown, so not counted in missed
+                    listener.onGap(unreached, position);
+                } catch (RuntimeException e) {
+                    // delivery still starts at position
+                    LISTENER_FAILURES.increment();
+                }
+            }
+            List<ChangeEvent> batch = new ArrayList<>(MAX_BATCH);
+            while (!closed) {
+                long from = position;
+                long next = read(from, MAX_BATCH, batch);
+                long first = batch.isEmpty() ? next : batch.get(0).getSequence();
+                try {
+                    if (first > from) {
+                        missed.addAndGet(first - from);
+                        EVENTS_MISSED.add(first - from);
+                        listener.onGap(from, first);
+                    }
+                } catch (RuntimeException e) {
+                    // the gap is still counted in missed
+                    LISTENER_FAILURES.increment();
+                }
+                for (ChangeEvent event : batch) {
+                    try {
+                        listener.onEvent(event);
+                    } catch (RuntimeException e) {
+                        // a bad event for one listener must not stop its stream
+                        LISTENER_FAILURES.increment();
+                    }
+                }
+                position = next;
+                if (batch.isEmpty()) {
+                    // flag first, then look again: a writer storing in between sees the flag
+                    waiting = true;
+                    if (!readable(next) && !closed) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    waiting = false;
+                }
+                batch.clear();
+            }
+        }
+    }
+}
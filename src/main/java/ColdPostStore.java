@@ -0,0 +1,551 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Community posts moved out of the heap by CommunityManager's retention. A segment file
+// holds posts of one topic in id order, deflated in blocks of BLOCK_POSTS, and is mapped
+// read-only once written: the heap keeps only each segment's small block directory, and a
+// block is inflated when a read reaches it.
+// Layout: [int MAGIC][blocks][directory][long directory offset][int AUTHORS_MAGIC]
+// Directory: [topic][int blocks], then per block [int first id][int last id][int offset]
+// [int length][int raw length][int posts][int crc32 of the raw bytes][int authors][usernames].
+// Raw block: per post [int id][long timestamp][username][message].
+class ColdPostStore {
+    static final int BLOCK_POSTS = 128;
+
+    private static final int MAGIC = 0x4D57434C;
+    private static final int AUTHORS_MAGIC = 0x4D57434D;
+    private static final String SEGMENT_PREFIX = "posts-";
+    private static final String SEGMENT_SUFFIX = ".cold";
+
+    private final Path directory;
+    // replaced on write, never changed, so reads take no lock
+    private final ConcurrentMap<String, TopicSegments> segments = new ConcurrentHashMap<>();
+    // every segment by the sequence number add() gave it
+    private volatile Segment[] bySequence = new Segment[0];
+    // username -> the cold blocks holding their posts, so user reads open only those
+    private final ConcurrentMap<String, AuthorBlocks> authors = new ConcurrentHashMap<>();
+    private final AtomicLong postCount = new AtomicLong();
+    private final AtomicLong segmentBytes = new AtomicLong();
+
+    // Maps every segment already in the directory and reads each block once, to index the
+    // post ids, handing every post to visitor on the way. A crash mid-write leaves only a .tmp,
+    // which is ignored here: opening changes nothing on disk.
+    ColdPostStore(Path directory, PostVisitor visitor) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    add(Segment.open(path, null, visitor));
+                }
+            }
+        }
+    }
+
+    // the leftovers of writes a crash interrupted; only for the process that owns the data
+    void deleteTemporaryFiles() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path path : stream) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // posts must be of one topic, oldest first; durable before they are visible
+    synchronized void write(String topic, List<CommunityPost> posts) throws IOException {
+        Path target = directory.resolve(SEGMENT_PREFIX + String.format("%010d", posts.get(0).getId()) + SEGMENT_SUFFIX);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        int blocks = (posts.size() + BLOCK_POSTS - 1) / BLOCK_POSTS;
+        int[][] directoryEntries = new int[blocks][];
+        List<Set<String>> blockAuthors = new ArrayList<>(blocks);
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(BLOCK_POSTS * 256);
+        byte[] compressed = new byte[BLOCK_POSTS * 256];
+        Deflater deflater = new Deflater();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            for (int block = 0; block < blocks; block++) {
+                int from = block * BLOCK_POSTS;
+                int to = Math.min(posts.size(), from + BLOCK_POSTS);
+                raw.reset();
+                DataOutputStream rawOut = new DataOutputStream(raw);
+                Set<String> names = new LinkedHashSet<>();
+                blockAuthors.add(names);
+                for (int i = from; i < to; i++) {
+                    CommunityPost post = posts.get(i);
+                    String username = post.getUser().getUsername();
+                    rawOut.writeInt(post.getId());
+                    rawOut.writeLong(post.getTimestampMillis());
+                    Codec.writeString(rawOut, username);
+                    Codec.writeString(rawOut, post.getMessage());
+                    names.add(username);
+                }
+                byte[] bytes = raw.toByteArray();
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                deflater.reset();
+                deflater.setInput(bytes);
+                deflater.finish();
+                int length = 0;
+                while (!deflater.finished()) {
+                    if (length == compressed.length) {
+                        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                    }
+                    length += deflater.deflate(compressed, length, compressed.length - length);
+                }
+                directoryEntries[block] = new int[] {posts.get(from).getId(), posts.get(to - 1).getId(),
+                        out.size(), length, bytes.length, to - from, (int) crc.getValue()};
+                out.write(compressed, 0, length);
+            }
+            long directoryOffset = out.size();
+            Codec.writeString(out, topic);
+            out.writeInt(blocks);
+            for (int block = 0; block < blocks; block++) {
+                for (int value : directoryEntries[block]) {
+                    out.writeInt(value);
+                }
+                out.writeInt(blockAuthors.get(block).size());
+                for (String username : blockAuthors.get(block)) {
+                    Codec.writeString(out, username);
+                }
+            }
+            out.writeLong(directoryOffset);
+            out.writeInt(AUTHORS_MAGIC);
+        } finally {
+            deflater.end();
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        add(Segment.open(target, posts.stream().mapToInt(CommunityPost::getId).toArray(), null));
+    }
+
+    private synchronized void add(Segment segment) {
+        int sequence = bySequence.length;
+        Segment[] next = Arrays.copyOf(bySequence, sequence + 1);
+        next[sequence] = segment;
+        bySequence = next;
+        String[][] blockAuthors = segment.takeAuthors();
+        for (int block = 0; block < blockAuthors.length; block++) {
+            long key = ((long) sequence << 32) | block;
+            int lastId = segment.lastIdOf(block);
+            for (String username : blockAuthors[block]) {
+                authors.compute(username, (name, current) ->
+                        (current == null ? AuthorBlocks.EMPTY : current).with(key, lastId));
+            }
+        }
+        segments.compute(segment.topic, (topic, current) -> (current == null ? TopicSegments.EMPTY : current).with(segment));
+        postCount.addAndGet(segment.posts);
+        segmentBytes.addAndGet(segment.data.capacity());
+    }
+
+    public long getPostCount() {
+        return postCount.get();
+    }
+
+    public long getSegmentBytes() {
+        return segmentBytes.get();
+    }
+
+    public int getPostCount(String topic) {
+        return segments.getOrDefault(topic, TopicSegments.EMPTY).posts;
+    }
+
+    public int getMaxPostId(String topic) {
+        return segments.getOrDefault(topic, TopicSegments.EMPTY).maxId;
+    }
+
+    // an upper bound on the user's newest cold post id, 0 if they have none
+    public int getMaxPostId(User user) {
+        AuthorBlocks blocks = authors.get(user.getUsername());
+        return blocks == null ? 0 : blocks.maxLastId();
+    }
+
+    public int getMaxPostId() {
+        int max = 0;
+        for (TopicSegments topic : segments.values()) {
+            max = Math.max(max, topic.maxId);
+        }
+        return max;
+    }
+
+    // answered from the segments' id arrays, no block is read
+    public boolean contains(String topic, int id) {
+        TopicSegments current = segments.getOrDefault(topic, TopicSegments.EMPTY);
+        if (id > current.maxId) {
+            return false;
+        }
+        for (Segment segment : current.list) {
+            if (segment.has(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // in any topic
+    public boolean contains(int id) {
+        for (String topic : segments.keySet()) {
+            if (contains(topic, id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // only the block that holds the post is inflated
+    public CommunityPost get(int id) {
+        for (TopicSegments topic : segments.values()) {
+            if (id > topic.maxId) {
+                continue;
+            }
+            for (Segment segment : topic.list) {
+                if (segment.has(id)) {
+                    for (CommunityPost post : segment.posts(segment.blockOf(id), null)) {
+                        if (post.getId() == id) {
+                            return post;
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // newest first: the topic's cold posts older than the cursor
+    public FeedPage page(String topic, int beforeCursor, int limit) {
+        List<CommunityPost> page = new ArrayList<>(Math.min(limit, 64));
+        List<Segment> list = segments.getOrDefault(topic, TopicSegments.EMPTY).list;
+        for (int s = list.size() - 1; s >= 0; s--) {
+            Segment segment = list.get(s);
+            for (int block = segment.blockCount() - 1; block >= 0; block--) {
+                if (segment.firstIds[block] >= beforeCursor) {
+                    continue;
+                }
+                if (page.size() == limit) {
+                    return new FeedPage(page, true);
+                }
+                List<CommunityPost> posts = segment.posts(block, null);
+                for (int i = posts.size() - 1; i >= 0; i--) {
+                    if (posts.get(i).getId() >= beforeCursor) {
+                        continue;
+                    }
+                    if (page.size() == limit) {
+                        return new FeedPage(page, true);
+                    }
+                    page.add(posts.get(i));
+                }
+            }
+        }
+        return new FeedPage(page, false);
+    }
+
+    // Newest first, across every topic: at most limit posts by username older than the cursor.
+    // Only blocks holding one of their posts are opened, newest last id first. Blocks of
+    // different topics overlap in ids, so the walk ends once a full page is newer than
+    // everything the next block can hold.
+    public FeedPage userPage(String username, int beforeCursor, int limit) {
+        AuthorBlocks blocks = authors.get(username);
+        if (blocks == null || limit <= 0) {
+            return FeedPage.EMPTY;
+        }
+        Segment[] all = bySequence;
+        Comparator<CommunityPost> newestFirst = Comparator.comparingInt(CommunityPost::getId).reversed();
+        List<CommunityPost> page = new ArrayList<>();
+        boolean more = false;
+        for (int i = blocks.count() - 1; i >= 0; i--) {
+            Segment segment = all[(int) (blocks.keys[i] >>> 32)];
+            int block = (int) blocks.keys[i];
+            if (segment.firstIds[block] >= beforeCursor) {
+                continue;
+            }
+            if (page.size() >= limit) {
+                page.sort(newestFirst);
+                page.subList(limit, page.size()).clear();
+                if (page.get(limit - 1).getId() > blocks.lastIds[i]) {
+                    more = true;
+                    break;
+                }
+            }
+            for (CommunityPost post : segment.posts(block, username)) {
+                if (post.getId() < beforeCursor) {
+                    page.add(post);
+                }
+            }
+        }
+        page.sort(newestFirst);
+        if (page.size() > limit) {
+            page.subList(limit, page.size()).clear();
+            more = true;
+        }
+        return new FeedPage(page, more);
+    }
+
+    // every cold post, oldest segment of each topic first; for rebuilding indexes at startup
+    public void forEach(PostVisitor visitor) {
+        for (String topic : segments.keySet()) {
+            forEach(topic, visitor);
+        }
+    }
+
+    // one topic's cold posts, oldest segment first
+    public void forEach(String topic, PostVisitor visitor) {
+        for (Segment segment : segments.getOrDefault(topic, TopicSegments.EMPTY).list) {
+            for (int block = 0; block < segment.blockCount(); block++) {
+                segment.read(block, visitor);
+            }
+        }
+    }
+
+    interface PostVisitor {
+        void visit(int id, long timestamp, String username, String message);
+    }
+
+    // one author's cold blocks as (segment sequence << 32 | block) keys, by last id ascending
+    private static final class AuthorBlocks {
+        static final AuthorBlocks EMPTY = new AuthorBlocks(new long[0], new int[0]);
+
+        final long[] keys;
+        final int[] lastIds;
+
+        private AuthorBlocks(long[] keys, int[] lastIds) {
+            this.keys = keys;
+            this.lastIds = lastIds;
+        }
+
+        int count() {
+            return keys.length;
+        }
+
+        int maxLastId() {
+            return lastIds.length == 0 ? 0 : lastIds[lastIds.length - 1];
+        }
+
+        // blocks mostly arrive in id order, so this is usually an append
+        AuthorBlocks with(long key, int lastId) {
+            int at = keys.length;
+            while (at > 0 && lastIds[at - 1] > lastId) {
+                at--;
+            }
+            if (at > 0 && keys[at - 1] == key) {
+                return this;
+            }
+            long[] nextKeys = new long[keys.length + 1];
+            int[] nextLastIds = new int[keys.length + 1];
+            System.arraycopy(keys, 0, nextKeys, 0, at);
+            System.arraycopy(lastIds, 0, nextLastIds, 0, at);
+            nextKeys[at] = key;
+            nextLastIds[at] = lastId;
+            System.arraycopy(keys, at, nextKeys, at + 1, keys.length - at);
+            System.arraycopy(lastIds, at, nextLastIds, at + 1, keys.length - at);
+            return new AuthorBlocks(nextKeys, nextLastIds);
+        }
+    }
+
+    // one topic's segments, oldest first
+    private static final class TopicSegments {
+        static final TopicSegments EMPTY = new TopicSegments(Collections.emptyList(), 0, 0);
+
+        final List<Segment> list;
+        final int maxId;
+        final int posts;
+
+        private TopicSegments(List<Segment> list, int maxId, int posts) {
+            this.list = list;
+            this.maxId = maxId;
+            this.posts = posts;
+        }
+
+        TopicSegments with(Segment segment) {
+            List<Segment> next = new ArrayList<>(list);
+            next.add(segment);
+            next.sort(Comparator.comparingInt(Segment::firstId));
+            return new TopicSegments(Collections.unmodifiableList(next), Math.max(maxId, segment.lastId()),
+                    posts + segment.posts);
+        }
+    }
+
+    private static final class Segment {
+        // per block: first id, last id, offset, length, raw length, posts, crc
+        private static final int ENTRY_INTS = 7;
+
+        final String topic;
+        final MappedByteBuffer data;
+        final int posts;
+        final int[] firstIds;
+        private final int[] entries;
+        // every post id, ascending, so membership never inflates a block
+        private int[] ids;
+        // the distinct usernames of each block, until add() has indexed them
+        private String[][] authors;
+
+        private Segment(String topic, MappedByteBuffer data, int[] entries, String[][] authors) {
+            this.topic = topic;
+            this.data = data;
+            this.entries = entries;
+            this.authors = authors;
+            firstIds = new int[entries.length / ENTRY_INTS];
+            int total = 0;
+            for (int block = 0; block < firstIds.length; block++) {
+                firstIds[block] = entries[block * ENTRY_INTS];
+                total += entries[block * ENTRY_INTS + 5];
+            }
+            posts = total;
+        }
+
+        // ids are the segment's post ids when the caller just wrote them; otherwise every
+        // block is read to collect them, and each post is handed to visitor if there is one
+        static Segment open(Path path, int[] ids, PostVisitor visitor) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (size < 16 || data.getInt(0) != MAGIC || data.getInt((int) size - 4) != AUTHORS_MAGIC) {
+                    throw new IOException("Not a cold post segment: " + path);
+                }
+                int directoryOffset = (int) data.getLong((int) size - 12);
+                byte[] bytes = new byte[(int) size - 12 - directoryOffset];
+                data.get(directoryOffset, bytes);
+                ByteBuffer directory = ByteBuffer.wrap(bytes);
+                String topic = Codec.readString(directory);
+                int blocks = directory.getInt();
+                int[] entries = new int[blocks * ENTRY_INTS];
+                String[][] authors = new String[blocks][];
+                for (int block = 0; block < blocks; block++) {
+                    for (int i = 0; i < ENTRY_INTS; i++) {
+                        entries[block * ENTRY_INTS + i] = directory.getInt();
+                    }
+                    authors[block] = new String[directory.getInt()];
+                    for (int i = 0; i < authors[block].length; i++) {
+                        authors[block][i] = Codec.readString(directory);
+                    }
+                }
+                Segment segment = new Segment(topic, data, entries, authors);
+                if (ids == null) {
+                    int[] collected = new int[segment.posts];
+                    int[] count = new int[1];
+                    for (int block = 0; block < blocks; block++) {
+                        segment.read(block, (id, timestamp, username, message) -> {
+                            collected[count[0]++] = id;
+                            if (visitor != null) {
+                                visitor.visit(id, timestamp, username, message);
+                            }
+                        });
+                    }
+                    ids = collected;
+                }
+                Arrays.sort(ids);
+                segment.ids = ids;
+                return segment;
+            }
+        }
+
+        int blockCount() {
+            return firstIds.length;
+        }
+
+        int firstId() {
+            return firstIds[0];
+        }
+
+        int lastId() {
+            return entries[entries.length - ENTRY_INTS + 1];
+        }
+
+        int lastIdOf(int block) {
+            return entries[block * ENTRY_INTS + 1];
+        }
+
+        String[][] takeAuthors() {
+            String[][] taken = authors;
+            authors = null;
+            return taken;
+        }
+
+        boolean has(int id) {
+            return id >= firstIds[0] && id <= lastId() && Arrays.binarySearch(ids, id) >= 0;
+        }
+
+        // the block whose id range covers id, or -1
+        int blockOf(int id) {
+            int low = 0;
+            int high = firstIds.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (id < firstIds[mid]) {
+                    high = mid - 1;
+                } else if (id > entries[mid * ENTRY_INTS + 1]) {
+                    low = mid + 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        void read(int block, PostVisitor visitor) {
+            int entry = block * ENTRY_INTS;
+            byte[] compressed = new byte[entries[entry + 3]];
+            data.get(entries[entry + 2], compressed);
+            byte[] raw = new byte[entries[entry + 4]];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                int length = 0;
+                while (length < raw.length && !inflater.finished()) {
+                    int inflated = inflater.inflate(raw, length, raw.length - length);
+                    // a truncated block runs out of input, a damaged one may ask for a dictionary;
+                    // either way no further call makes progress
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new DataFormatException("block ends after " + length + " of " + raw.length + " bytes");
+                    }
+                    length += inflated;
+                }
+                if (length < raw.length) {
+                    throw new DataFormatException("block ends after " + length + " of " + raw.length + " bytes");
+                }
+            } catch (DataFormatException e) {
+                throw new UncheckedIOException(new IOException("Corrupt cold post block in " + topic, e));
+            } finally {
+                inflater.end();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(raw);
+            if ((int) crc.getValue() != entries[entry + 6]) {
+                throw new UncheckedIOException(new IOException("Cold post block checksum mismatch in " + topic));
+            }
+            ByteBuffer in = ByteBuffer.wrap(raw);
+            for (int i = 0; i < entries[entry + 5]; i++) {
+                int id = in.getInt();
+                long timestamp = in.getLong();
+                visitor.visit(id, timestamp, Codec.readString(in), Codec.readString(in));
+            }
+        }
+
+        // oldest first; posts whose author no longer exists are left out
+        List<CommunityPost> posts(int block, String onlyUsername) {
+            List<CommunityPost> result = new ArrayList<>(entries[block * ENTRY_INTS + 5]);
+            UserManager users = UserManager.getInstance();
+            read(block, (id, timestamp, username, message) -> {
+                if (onlyUsername == null || onlyUsername.equals(username)) {
+                    User user = users.getUser(username);
+                    if (user != null) {
+                        result.add(new CommunityPost(id, user, topic, message, timestamp));
+                    }
+                }
+            });
+            return result;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// singleton
+class CommunityManager implements Subject {
+    private static final Histogram ADD_POST_LATENCY = Metrics.getInstance()
+            .latency("mindwell_add_post_seconds", "CommunityManager.addPost latency, including sync fan-out");
+    private static final Histogram NOTIFY_LATENCY = Metrics.getInstance()
+            .latency("mindwell_notify_observers_seconds", "CommunityManager.notifyObservers latency");
+    private static final Histogram POSTS_BY_TOPIC_LATENCY = Metrics.getInstance()
+            .latency("mindwell_posts_by_topic_seconds", "CommunityManager.getPostsByTopic latency");
+    private static final Counter POSTS_MOVED_COLD = Metrics.getInstance()
+            .counter("mindwell_posts_moved_cold_total", "Posts moved from memory to cold segments");
+    // posts move to cold segments at least this many at a time, so segments don't fragment
+    private static final int RETENTION_BATCH = 8 * ColdPostStore.BLOCK_POSTS;
+
+    // partitioned by topic; a user's posts are spread over the shards of the topics they wrote in
+    private volatile ShardRouter<CommunityShard> shards;
+    // one sequence for all shards, ids stay unique and ordered when shard feeds are merged
+    private AtomicInteger lastPostId;
+    private Map<String, TopicSubscribers> topicSubscribers;
+    private List<String> topics;
+    private volatile NotificationDispatcher dispatcher;
+    // older posts, once openColdStore has run; the retention limits decide what moves there
+    private volatile ColdPostStore coldStore;
+    private volatile long retentionMaxAgeMillis;
+    private volatile long retentionMaxHotBytes;
+    private ScheduledExecutorService retentionScheduler;
+    private final Object importLock = new Object();
+
+    private CommunityManager() {
+        shards = new ShardRouter<>(1, shard -> new CommunityShard());
+        lastPostId = new AtomicInteger();
+        topicSubscribers = new HashMap<>();
+        topics = new ArrayList<>();
+
+        topics.add("Stress & Anxiety");
+        topics.add("Sleep Issues");
+        topics.add("Self-Development");
+        topics.add("Depression Support");
+
+        for (String topic : topics) {
+            topicSubscribers.put(topic, new TopicSubscribers(topic));
+            shards.route(topic).addTopic(topic);
+        }
+    }
+
+    public static CommunityManager getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final CommunityManager INSTANCE = new CommunityManager();
+    }
+
+    public void addPost(User user, String topic, String message) {
+        long start = System.nanoTime();
+        StorageEngine storage = StorageEngine.getInstance();
+        CommunityPost post;
+        storage.beginMutation();
+        try {
+            // ids only grow, so they order posts in time and double as page cursors; taken
+            // inside the mutation so a snapshot's last id covers exactly the posts before it
+            post = new CommunityPost(lastPostId.incrementAndGet(), user, topic, message,
+                    System.currentTimeMillis());
+            applyPost(post);
+            storage.logPost(post);
+            ChangeStream.getInstance().publish(new ChangeEvent.PostAdded(post));
+        } finally {
+            storage.endMutation();
+        }
+        if (dispatcher != null) {
+            dispatcher.submit(topic, message);
+        } else {
+            notifyObservers(topic, message);
+        }
+        ADD_POST_LATENCY.recordSince(start);
+    }
+
+    // recovery path: indexes the post without logging it again or notifying anyone;
+    // false if its topic already holds the id, in memory or cold
+    boolean applyPost(CommunityPost post) {
+        lastPostId.accumulateAndGet(post.getId(), Math::max);
+        ColdPostStore store = coldStore;
+        // a replayed post that was moved out after the last snapshot stays cold
+        if (store != null && store.contains(post.getTopic(), post.getId())) {
+            return false;
+        }
+        if (!shards.route(post.getTopic()).add(post)) {
+            return false;
+        }
+        SearchIndex.getInstance().indexPost(post.getId(), post.getMessage());
+        return true;
+    }
+
+    // Bulk import path: indexed like a replayed post, unless its id is already taken in any
+    // topic. Both tiers answer from memory, no cold block is read, and the check and the
+    // insert happen under importLock, so two records with one id can't both go in.
+    boolean importPost(CommunityPost post) {
+        StorageEngine storage = StorageEngine.getInstance();
+        storage.beginMutation();
+        try {
+            synchronized (importLock) {
+                return !hasPost(post.getId()) && applyPost(post);
+            }
+        } finally {
+            storage.endMutation();
+        }
+    }
+
+    private boolean hasPost(int id) {
+        for (CommunityShard shard : shards.getShards()) {
+            if (shard.get(id) != null) {
+                return true;
+            }
+        }
+        ColdPostStore store = coldStore;
+        return store != null && store.contains(id);
+    }
+
+    int getLastPostId() {
+        return lastPostId.get();
+    }
+
+    // recovery of posts logged before they carried an id
+    int nextPostId() {
+        return lastPostId.incrementAndGet();
+    }
+
+    // Moves every post into shardCount new shards by topic. Meant for startup, like
+    // UserManager.configureShards: a post added while it runs can be lost.
+    public void configureShards(int shardCount) {
+        ShardRouter<CommunityShard> next = new ShardRouter<>(shardCount, shard -> new CommunityShard());
+        for (String topic : topics) {
+            next.route(topic).addTopic(topic);
+        }
+        for (CommunityShard shard : shards.getShards()) {
+            for (String topic : shard.getTopics()) {
+                CommunityShard target = next.route(topic);
+                for (CommunityPost post : shard.getTopicFeed(topic).all()) {
+                    target.add(post);
+                }
+            }
+        }
+        shards = next;
+    }
+
+    public ShardRouter<CommunityShard> getShardRouter() {
+        return shards;
+    }
+
+    // Maps the cold segments in directory and indexes their posts for search. Must run
+    // before the log is replayed, so replay can tell which posts were already moved out.
+    public void openColdStore(Path directory) {
+        SearchIndex index = SearchIndex.getInstance();
+        ColdPostStore store;
+        try {
+            // one pass over the blocks builds the store's id index and the search index
+            store = new ColdPostStore(directory, (id, timestamp, username, message) -> index.indexPost(id, message));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open cold post storage in " + directory, e);
+        }
+        lastPostId.accumulateAndGet(store.getMaxPostId(), Math::max);
+        coldStore = store;
+    }
+
+    public ColdPostStore getColdStore() {
+        return coldStore;
+    }
+
+    // Keeps the in-memory posts within maxAgeMillis and maxHotBytes, checked every
+    // checkSeconds; 0 turns a limit off. Needs openColdStore first.
+    public synchronized void enableRetention(long maxAgeMillis, long maxHotBytes, long checkSeconds) {
+        if (coldStore == null) {
+            throw new IllegalStateException("openColdStore must be called before enableRetention");
+        }
+        retentionMaxAgeMillis = maxAgeMillis;
+        retentionMaxHotBytes = maxHotBytes;
+        if (retentionScheduler == null) {
+            try {
+                coldStore.deleteTemporaryFiles();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not clean up cold post storage", e);
+            }
+            retentionScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "post-retention");
+                thread.setDaemon(true);
+                return thread;
+            });
+            retentionScheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    enforceRetention();
+                } catch (UncheckedIOException e) {
+                    System.err.println("Post retention failed: " + e.getMessage());
+                }
+            }, checkSeconds, checkSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    // Moves posts to the cold store: first each topic's posts past the age limit, then the
+    // oldest posts overall until the shards fit the byte budget. A post is written cold
+    // before it leaves memory, so readers always find it in one tier or the other.
+    // Fewer than a block of expired posts wait for the next pass. Returns the number moved.
+    public synchronized int enforceRetention() {
+        ColdPostStore store = coldStore;
+        if (store == null) {
+            return 0;
+        }
+        int moved = 0;
+        if (retentionMaxAgeMillis > 0) {
+            long cutoff = System.currentTimeMillis() - retentionMaxAgeMillis;
+            for (CommunityShard shard : shards.getShards()) {
+                for (String topic : shard.getTopics()) {
+                    List<CommunityPost> expired;
+                    while ((expired = shard.getTopicFeed(topic).oldest(RETENTION_BATCH, cutoff)).size()
+                            >= ColdPostStore.BLOCK_POSTS) {
+                        moved += moveToCold(store, shard, topic, expired);
+                    }
+                }
+            }
+        }
+        while (retentionMaxHotBytes > 0 && getHotBytes() > retentionMaxHotBytes) {
+            CommunityShard oldestShard = null;
+            String oldestTopic = null;
+            int oldestId = Integer.MAX_VALUE;
+            for (CommunityShard shard : shards.getShards()) {
+                for (String topic : shard.getTopics()) {
+                    int firstId = shard.getTopicFeed(topic).firstId();
+                    if (firstId < oldestId) {
+                        oldestShard = shard;
+                        oldestTopic = topic;
+                        oldestId = firstId;
+                    }
+                }
+            }
+            if (oldestTopic == null) {
+                break;
+            }
+            moved += moveToCold(store, oldestShard, oldestTopic,
+                    oldestShard.getTopicFeed(oldestTopic).oldest(RETENTION_BATCH, Long.MAX_VALUE));
+        }
+        return moved;
+    }
+
+    private int moveToCold(ColdPostStore store, CommunityShard shard, String topic, List<CommunityPost> posts) {
+        try {
+            store.write(topic, posts);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not move posts of " + topic + " to cold storage", e);
+        }
+        for (CommunityPost post : posts) {
+            shard.remove(post);
+        }
+        POSTS_MOVED_COLD.add(posts.size());
+        return posts.size();
+    }
+
+    // estimated heap held by the posts still in memory
+    public long getHotBytes() {
+        long bytes = 0;
+        for (CommunityShard shard : shards.getShards()) {
+            bytes += shard.getBytes();
+        }
+        return bytes;
+    }
+
+    // posting returns immediately, subscribers are notified in batches by worker threads
+    public synchronized void enableAsyncNotifications(int queueCapacity, int workerCount) {
+        if (dispatcher == null) {
+            dispatcher = new NotificationDispatcher(queueCapacity, workerCount, this::getSubscribers);
+        }
+    }
+
+    public NotificationDispatcher getNotificationDispatcher() {
+        return dispatcher;
+    }
+
+    // only called to deliver, so this is where fan-out size is measured, sync and async alike
+    private List<Observer> getSubscribers(String topic) {
+        TopicSubscribers ts = topicSubscribers.get(topic);
+        return ts == null ? Collections.emptyList() : ts.getObserversForDelivery();
+    }
+
+    public List<String> getTopics() {
+        return topics;
+    }
+
+    // read-only views of the indexes, oldest first; nothing is copied.
+    // Only the in-memory posts: cold ones are reached through the paged reads
+    public Collection<CommunityPost> getPostsByTopic(String topic) {
+        long start = System.nanoTime();
+        PostFeed feed = shards.route(topic).getTopicFeed(topic);
+        Collection<CommunityPost> posts = feed == null ? Collections.emptyList() : feed.all();
+        POSTS_BY_TOPIC_LATENCY.recordSince(start);
+        return posts;
+    }
+
+    public int getPostCount(String topic) {
+        PostFeed feed = shards.route(topic).getTopicFeed(topic);
+        ColdPostStore store = coldStore;
+        return (feed == null ? 0 : feed.size()) + (store == null ? 0 : store.getPostCount(topic));
+    }
+
+    // scatter-gather: each shard holds the user's posts in its topics; merged oldest first.
+    // Only the in-memory posts, like getPostsByTopic: cold ones are reached through getUserPage
+    public Collection<CommunityPost> getPostsByUser(User user) {
+        List<FeedPage> pages = new ArrayList<>();
+        for (CommunityShard shard : shards.getShards()) {
+            PostFeed feed = shard.getUserFeed(user);
+            if (feed != null) {
+                pages.add(new FeedPage(new ArrayList<>(feed.all()), false));
+            }
+        }
+        List<CommunityPost> posts = new ArrayList<>(merge(pages, Integer.MAX_VALUE).getPosts());
+        Collections.reverse(posts);
+        return Collections.unmodifiableList(posts);
+    }
+
+    // newest first: posts older than the cursor, FeedPage.FIRST for the first page
+    public FeedPage getTopicPage(String topic, int beforeCursor, int limit) {
+        PostFeed feed = shards.route(topic).getTopicFeed(topic);
+        FeedPage hot = feed == null ? FeedPage.EMPTY : feed.page(beforeCursor, limit);
+        ColdPostStore store = coldStore;
+        if (store == null || store.getPostCount(topic) == 0) {
+            return hot;
+        }
+        // cold posts are older than every hot one, bar a post that raced its move, so a
+        // full hot page below nothing cold needs no segment read
+        List<CommunityPost> posts = hot.getPosts();
+        if (limit > 0 && posts.size() == limit && posts.get(limit - 1).getId() > store.getMaxPostId(topic)) {
+            return new FeedPage(posts, true);
+        }
+        return merge(Arrays.asList(hot, store.page(topic, beforeCursor, limit)), limit);
+    }
+
+    // scatter-gather: a page from every shard, merged newest first, and from the cold
+    // store only when the hot posts can't fill the page above the user's newest cold one
+    public FeedPage getUserPage(User user, int beforeCursor, int limit) {
+        List<FeedPage> pages = new ArrayList<>();
+        for (CommunityShard shard : shards.getShards()) {
+            PostFeed feed = shard.getUserFeed(user);
+            if (feed != null) {
+                pages.add(feed.page(beforeCursor, limit));
+            }
+        }
+        FeedPage hot = merge(pages, limit);
+        ColdPostStore store = coldStore;
+        int maxColdId = store == null ? 0 : store.getMaxPostId(user);
+        if (maxColdId == 0) {
+            return hot;
+        }
+        List<CommunityPost> posts = hot.getPosts();
+        if (limit > 0 && posts.size() == limit && posts.get(limit - 1).getId() > maxColdId) {
+            return new FeedPage(posts, true);
+        }
+        return merge(Arrays.asList(hot, store.userPage(user.getUsername(), beforeCursor, limit)), limit);
+    }
+
+    // newest first, cut to limit; a post seen in two tiers mid-move is kept once
+    private static FeedPage merge(List<FeedPage> pages, int limit) {
+        List<CommunityPost> merged = new ArrayList<>();
+        boolean more = false;
+        for (FeedPage page : pages) {
+            merged.addAll(page.getPosts());
+            more |= page.hasMore();
+        }
+        if (merged.isEmpty()) {
+            return more ? new FeedPage(merged, true) : FeedPage.EMPTY;
+        }
+        merged.sort(Comparator.comparingInt(CommunityPost::getId).reversed());
+        int kept = 1;
+        for (int i = 1; i < merged.size(); i++) {
+            if (merged.get(i).getId() != merged.get(kept - 1).getId()) {
+                merged.set(kept++, merged.get(i));
+            }
+        }
+        if (kept > limit) {
+            kept = limit;
+            more = true;
+        }
+        merged.subList(kept, merged.size()).clear();
+        return new FeedPage(merged, more);
+    }
+
+    // ids don't say which topic a post is in, so every shard is asked, then the cold store
+    public CommunityPost getPost(int id) {
+        for (CommunityShard shard : shards.getShards()) {
+            CommunityPost post = shard.get(id);
+            if (post != null) {
+                return post;
+            }
+        }
+        ColdPostStore store = coldStore;
+        return store == null ? null : store.get(id);
+    }
+
+    // best matches first
+    public List<CommunityPost> searchPosts(String query, int limit) {
+        List<CommunityPost> result = new ArrayList<>();
+        for (int id : SearchIndex.getInstance().searchPosts(query, limit)) {
+            CommunityPost post = getPost(id);
+            if (post != null) {
+                result.add(post);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void subscribe(String topic, Observer observer) {
+        TopicSubscribers ts = topicSubscribers.get(topic);
+        if (ts != null) {
+            ts.addObserver(observer);
+        }
+    }
+
+    @Override
+    public void unsubscribe(String topic, Observer observer) {
+        TopicSubscribers ts = topicSubscribers.get(topic);
+        if (ts != null) {
+            ts.removeObserver(observer);
+        }
+    }
+
+    @Override
+    public void notifyObservers(String topic, String message) {
+        long start = System.nanoTime();
+        for (Observer observer : getSubscribers(topic)) {
+            observer.update(topic, message);
+        }
+        NOTIFY_LATENCY.recordSince(start);
+    }
+}
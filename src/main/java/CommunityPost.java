@@ -0,0 +1,53 @@
+import java.time.Instant;
+
+class CommunityPost {
+    private int id;
+    private User user;
+    private String topic;
+    private String message;
+    private long timestamp;
+
+    // timestamp is in epoch milliseconds
+    public CommunityPost(int id, User user, String topic, String message, long timestamp) {
+        this.id = id;
+        this.user = user;
+        this.topic = topic;
+        this.message = message;
+        this.timestamp = timestamp;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Instant getTimestamp() {
+        return Instant.ofEpochMilli(timestamp);
+    }
+
+    public long getTimestampMillis() {
+        return timestamp;
+    }
+
+    public StringBuilder appendTo(StringBuilder out) {
+        out.append('[').append(topic).append("] ").append(user.getUsername()).append(" (");
+        TimestampFormat.appendTo(out, timestamp);
+        return out.append("):\n").append(message);
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(64 + message.length())).toString();
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The in-memory posts of the topics one shard owns, indexed by topic and by author.
+class CommunityShard {
+    // a post's object, its message and the nodes of both indexes; an estimate, deliberately high
+    private static final int POST_OVERHEAD_BYTES = 240;
+
+    private final Map<String, PostFeed> postsByTopic = new ConcurrentHashMap<>();
+    private final Map<User, PostFeed> postsByUser = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+
+    static long estimatedBytes(CommunityPost post) {
+        return POST_OVERHEAD_BYTES + 2L * post.getMessage().length();
+    }
+
+    void addTopic(String topic) {
+        postsByTopic.putIfAbsent(topic, new PostFeed());
+    }
+
+    // false, and nothing changes, if the topic already holds a post with this id
+    boolean add(CommunityPost post) {
+        if (!postsByTopic.computeIfAbsent(post.getTopic(), t -> new PostFeed()).add(post)) {
+            return false;
+        }
+        bytes.addAndGet(estimatedBytes(post));
+        postsByUser.computeIfAbsent(post.getUser(), u -> new PostFeed()).add(post);
+        return true;
+    }
+
+    // an author's emptied feed is kept, dropping it could race with their next post
+    void remove(CommunityPost post) {
+        PostFeed topicFeed = postsByTopic.get(post.getTopic());
+        if (topicFeed != null && topicFeed.remove(post)) {
+            bytes.addAndGet(-estimatedBytes(post));
+        }
+        PostFeed userFeed = postsByUser.get(post.getUser());
+        if (userFeed != null) {
+            userFeed.remove(post);
+        }
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public Set<String> getTopics() {
+        return Collections.unmodifiableSet(postsByTopic.keySet());
+    }
+
+    public PostFeed getTopicFeed(String topic) {
+        return postsByTopic.get(topic);
+    }
+
+    public PostFeed getUserFeed(User user) {
+        return postsByUser.get(user);
+    }
+
+    public CommunityPost get(int id) {
+        for (PostFeed feed : postsByTopic.values()) {
+            CommunityPost post = feed.get(id);
+            if (post != null) {
+                return post;
+            }
+        }
+        return null;
+    }
+
+    public int getPostCount() {
+        int count = 0;
+        for (PostFeed feed : postsByTopic.values()) {
+            count += feed.size();
+        }
+        return count;
+    }
+}
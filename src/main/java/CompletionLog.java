@@ -0,0 +1,99 @@
+import java.util.*;
+
+// Completed exercises, one packed long per completion:
+// [exercise id: 16 bits][duration in minutes: 14 bits][epoch seconds: 34 bits].
+// Counts and minutes per exercise are arrays indexed by catalog id, kept up to date on add.
+// Epoch second 0 marks completions logged before timestamps were recorded.
+// Versions are immutable like MoodHistory's: records are appended past the previous
+// version's size, and the per-exercise counters, one slot per catalog entry, are copied.
+class CompletionLog {
+    static final int MAX_EXERCISE_ID = 0xFFFF;
+    static final int MAX_DURATION = 0x3FFF;
+    static final CompletionLog EMPTY = new CompletionLog(new long[0], 0, new int[0], new long[0], 0);
+
+    private static final long SECONDS_MASK = (1L << 34) - 1;
+
+    private final long[] records;
+    private final int size;
+    private final int[] counts;
+    private final long[] minutes;
+    private final long totalMinutes;
+
+    private CompletionLog(long[] records, int size, int[] counts, long[] minutes, long totalMinutes) {
+        this.records = records;
+        this.size = size;
+        this.counts = counts;
+        this.minutes = minutes;
+        this.totalMinutes = totalMinutes;
+    }
+
+    // the newest version only, one writer at a time
+    CompletionLog add(int exerciseId, long epochSeconds, int duration) {
+        long record = pack(exerciseId, epochSeconds, duration);
+        long[] newRecords = records;
+        if (size == records.length) {
+            newRecords = Arrays.copyOf(records, Math.max(8, size * 2));
+        }
+        newRecords[size] = record;
+        int[] newCounts = Arrays.copyOf(counts, Math.max(counts.length, exerciseId + 1));
+        long[] newMinutes = Arrays.copyOf(minutes, newCounts.length);
+        int recorded = durationOf(record);
+        newCounts[exerciseId]++;
+        newMinutes[exerciseId] += recorded;
+        return new CompletionLog(newRecords, size + 1, newCounts, newMinutes, totalMinutes + recorded);
+    }
+
+    static long pack(int exerciseId, long epochSeconds, int duration) {
+        if (exerciseId < 0 || exerciseId > MAX_EXERCISE_ID) {
+            throw new IllegalArgumentException("Exercise id out of range: " + exerciseId);
+        }
+        long seconds = Math.max(0, Math.min(epochSeconds, SECONDS_MASK));
+        long minutesField = Math.max(0, Math.min(duration, MAX_DURATION));
+        return ((long) exerciseId << 48) | (minutesField << 34) | seconds;
+    }
+
+    static int exerciseIdOf(long record) {
+        return (int) (record >>> 48);
+    }
+
+    static int durationOf(long record) {
+        return (int) (record >>> 34) & MAX_DURATION;
+    }
+
+    static long epochSecondsOf(long record) {
+        return record & SECONDS_MASK;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long recordAt(int index) {
+        Objects.checkIndex(index, size);
+        return records[index];
+    }
+
+    public int exerciseIdAt(int index) {
+        return exerciseIdOf(recordAt(index));
+    }
+
+    public long epochSecondsAt(int index) {
+        return epochSecondsOf(recordAt(index));
+    }
+
+    public int durationAt(int index) {
+        return durationOf(recordAt(index));
+    }
+
+    public int countOf(int exerciseId) {
+        return exerciseId < counts.length ? counts[exerciseId] : 0;
+    }
+
+    public long minutesOf(int exerciseId) {
+        return exerciseId < minutes.length ? minutes[exerciseId] : 0;
+    }
+
+    public long getTotalMinutes() {
+        return totalMinutes;
+    }
+}
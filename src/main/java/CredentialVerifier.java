@@ -0,0 +1,107 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed pool of daemon workers with a bounded queue for password hashing. call() fails fast
+// with RejectedExecutionException when the queue is full; callBlocking() waits for room,
+// for background work that must not be dropped. Queue time is measured per task.
+class CredentialVerifier {
+    static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private static final long BLOCKING_RETRY_MILLIS = 10;
+
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor pool;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder queueNanosTotal = new LongAdder();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    public CredentialVerifier(PasswordHasher hasher, int workers, int queueCapacity) {
+        this.hasher = hasher;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread worker = new Thread(runnable, "credential-worker-" + threadCount.getAndIncrement());
+                    worker.setDaemon(true);
+                    return worker;
+                });
+    }
+
+    public PasswordHasher getHasher() {
+        return hasher;
+    }
+
+    public <T> T call(Callable<T> task) {
+        try {
+            return await(pool.submit(timed(task)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for credential check", e);
+        }
+    }
+
+    // retries while the queue is full; throws RejectedExecutionException once the pool is shut down
+    public <T> T callBlocking(Callable<T> task) throws InterruptedException {
+        while (true) {
+            try {
+                // timed per attempt, so the sleeps between rejections don't count as queue time
+                return await(pool.submit(timed(task)));
+            } catch (RejectedExecutionException e) {
+                if (pool.isShutdown()) {
+                    throw e;
+                }
+                Thread.sleep(BLOCKING_RETRY_MILLIS);
+            }
+        }
+    }
+
+    private <T> Callable<T> timed(Callable<T> task) {
+        long queuedAt = System.nanoTime();
+        return () -> {
+            long waited = System.nanoTime() - queuedAt;
+            queueNanosTotal.add(waited);
+            maxQueueNanos.accumulateAndGet(waited, Math::max);
+            completed.increment();
+            return task.call();
+        };
+    }
+
+    private static <T> T await(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public double getAverageQueueMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0 : queueNanosTotal.sum() / (count * 1_000_000.0);
+    }
+
+    public double getMaxQueueMillis() {
+        return maxQueueNanos.get() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,995 @@
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+// Streams every user and post to one file and back, for migrations and backups.
+// Two formats carry the same records: binary frames shaped like the log's,
+// [int length][int crc32][byte type][payload], and line-delimited JSON for other tools.
+// Files go through one fixed NIO buffer and records are encoded or decoded in parallel
+// a batch at a time, so memory holds one batch of records, never the whole file.
+// Import checks every record; a bad one is rejected and reported, the rest still go in.
+// A name or post id that is already taken is skipped, so an interrupted import can just
+// be rerun. Imported records aren't logged one by one: a snapshot at the end makes them durable.
+class DataTransfer {
+    enum Format {
+        BINARY, // compact, a checksum per record
+        JSONL   // one JSON object per line
+    }
+
+    static final int FORMAT_VERSION = 1;
+    // records encoded or decoded per parallel step, and so the most held in memory at once
+    static final int BATCH = 1024;
+
+    private static final int MAGIC = 0x4D574558;
+    private static final String JSON_FORMAT = "mindwell-export";
+    private static final int BUFFER_BYTES = 1 << 20;
+    // a length past this is corruption, not a record
+    private static final int MAX_RECORD_BYTES = 64 << 20;
+    private static final int MAX_NAME_LENGTH = 256;
+    private static final int MAX_PROBLEMS = 20;
+
+    private static final byte CATALOG = 1;
+    private static final byte USER = 2;
+    private static final byte POST = 3;
+    private static final byte END = 4;
+
+    // what stands in for a user whose name is already taken
+    private static final Object DUPLICATE = new Object();
+
+    private final int parallelism;
+
+    public DataTransfer(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    // Users first, so an import always knows a post's author, then each topic's posts.
+    // A user is written as of the moment it is encoded; for a point-in-time copy export
+    // from a stopped instance. The file only appears under its name once it is complete.
+    public Summary exportTo(Path file, Format format) throws IOException {
+        List<Exercise> catalog = ExerciseManager.getInstance().getAllExercises();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long users = 0;
+        long[] posts = new long[1];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (RecordWriter out = new RecordWriter(temp)) {
+            if (format == Format.BINARY) {
+                out.write(ByteBuffer.allocate(8).putInt(MAGIC).putInt(FORMAT_VERSION).array());
+                // completions keep their packed catalog ids; the names let an import remap them
+                out.write(frame(CATALOG, data -> {
+                    data.writeInt(catalog.size());
+                    for (Exercise exercise : catalog) {
+                        Codec.writeString(data, exercise.getName());
+                    }
+                }));
+            } else {
+                out.write(line(new StringBuilder("{\"type\":\"header\",\"format\":\"" + JSON_FORMAT + "\",\"version\":")
+                        .append(FORMAT_VERSION).append('}')));
+            }
+
+            List<User> batch = new ArrayList<>(BATCH);
+            Iterator<User> all = UserManager.getInstance().getUsers().iterator();
+            while (all.hasNext()) {
+                batch.add(all.next());
+                if (batch.size() == BATCH || !all.hasNext()) {
+                    for (byte[] record : inParallel(pool, batch.size(), i -> encodeUser(batch.get(i), format, catalog))) {
+                        out.write(record);
+                    }
+                    users += batch.size();
+                    batch.clear();
+                }
+            }
+
+            CommunityManager community = CommunityManager.getInstance();
+            ColdPostStore cold = community.getColdStore();
+            for (String topic : community.getTopics()) {
+                // memory before disk: a post moved out in between is written twice rather than
+                // missed, and the import keeps one
+                for (CommunityPost post : community.getPostsByTopic(topic)) {
+                    out.write(encodePost(post.getId(), post.getUser().getUsername(), topic, post.getMessage(),
+                            post.getTimestampMillis(), format));
+                    posts[0]++;
+                }
+                if (cold != null) {
+                    try {
+                        cold.forEach(topic, (id, timestamp, username, message) -> {
+                            try {
+                                out.write(encodePost(id, username, topic, message, timestamp, format));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            posts[0]++;
+                        });
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+
+            long userCount = users;
+            out.write(format == Format.BINARY
+                    ? frame(END, data -> {
+                        data.writeLong(userCount);
+                        data.writeLong(posts[0]);
+                    })
+                    : line(new StringBuilder("{\"type\":\"end\",\"users\":").append(userCount)
+                            .append(",\"posts\":").append(posts[0]).append('}')));
+            out.force();
+        } finally {
+            pool.shutdown();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Summary(users, posts[0], 0, 0, Collections.emptyList());
+    }
+
+    // The format is told apart by the first bytes. A frame that fails its checksum, or a
+    // file without its end record, stops the import with an IOException; what was imported
+    // before that stays, and is in the closing snapshot like everything else.
+    public Summary importFrom(Path file) throws IOException {
+        UserManager userManager = UserManager.getInstance();
+        CommunityManager community = CommunityManager.getInstance();
+        long users = 0;
+        long posts = 0;
+        long skipped = 0;
+        long rejected = 0;
+        List<String> problems = new ArrayList<>();
+        long[] declared = null;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (RecordReader in = new RecordReader(file)) {
+            Format format = in.readHeader();
+            String[] catalog = format == Format.BINARY ? in.readCatalog() : null;
+            String unit = format == Format.BINARY ? "record " : "line ";
+            // the header or catalog was number 1
+            long number = 1;
+            List<byte[]> batch = new ArrayList<>(BATCH);
+            while (true) {
+                batch.clear();
+                byte[] record;
+                while (batch.size() < BATCH && (record = in.next(format)) != null) {
+                    batch.add(record);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                List<Object> checked = inParallel(pool, batch.size(), i -> decode(batch.get(i), format, catalog));
+                // names already taken, or claimed earlier in the batch, are never built, so their
+                // notes don't reach the note store; users are built detached and in parallel
+                Set<String> claimed = new HashSet<>();
+                for (int i = 0; i < checked.size(); i++) {
+                    if (checked.get(i) instanceof UserRecord) {
+                        String name = ((UserRecord) checked.get(i)).username;
+                        if (userManager.getUser(name) != null || !claimed.add(name)) {
+                            checked.set(i, DUPLICATE);
+                        }
+                    }
+                }
+                List<Object> decoded = inParallel(pool, checked.size(), i -> checked.get(i) instanceof UserRecord
+                        ? ((UserRecord) checked.get(i)).build() : checked.get(i));
+                List<User> added = new ArrayList<>();
+                boolean hadPosts = false;
+                for (Object result : decoded) {
+                    number++;
+                    String problem = null;
+                    if (declared != null) {
+                        problem = "follows the end record";
+                    } else if (result instanceof User) {
+                        if (userManager.importUser((User) result)) {
+                            added.add((User) result);
+                            users++;
+                        } else {
+                            skipped++;
+                        }
+                    } else if (result instanceof PostRecord) {
+                        PostRecord post = (PostRecord) result;
+                        User author = userManager.getUser(post.username);
+                        if (author == null) {
+                            problem = "post " + post.id + " by unknown user '" + post.username + "'";
+                        } else if (community.importPost(new CommunityPost(post.id, author, post.topic, post.message,
+                                post.timestamp))) {
+                            posts++;
+                            hadPosts = true;
+                        } else {
+                            skipped++;
+                        }
+                    } else if (result == DUPLICATE) {
+                        skipped++;
+                    } else if (result instanceof long[]) {
+                        declared = (long[]) result;
+                    } else {
+                        problem = (String) result;
+                    }
+                    if (problem != null) {
+                        rejected++;
+                        if (problems.size() < MAX_PROBLEMS) {
+                            problems.add(unit + number + ": " + problem);
+                        }
+                    }
+                }
+                // notes become searchable only for the users that went in
+                inParallel(pool, added.size(), i -> {
+                    added.get(i).indexMoodNotes();
+                    return null;
+                });
+                // imported posts count against the memory budget like new ones
+                if (hadPosts) {
+                    community.enforceRetention();
+                }
+            }
+        } finally {
+            pool.shutdown();
+            StorageEngine.getInstance().snapshot();
+        }
+        if (declared == null) {
+            throw new IOException("No end record, " + file + " is incomplete; " + users + " users and "
+                    + posts + " posts were imported before it ran out");
+        }
+        long seen = users + posts + skipped + rejected;
+        if (declared[0] + declared[1] != seen && problems.size() < MAX_PROBLEMS) {
+            problems.add("the end record counts " + declared[0] + " users and " + declared[1] + " posts, but "
+                    + seen + " records were read");
+        }
+        return new Summary(users, posts, skipped, rejected, problems);
+    }
+
+    // results in index order; an IOException thrown by a task comes back out as itself
+    private static <T> List<T> inParallel(ForkJoinPool pool, int count, IntFunction<T> task) throws IOException {
+        try {
+            return pool.submit(() -> IntStream.range(0, count).parallel().mapToObj(task)
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Data transfer interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Data transfer failed", e.getCause());
+        }
+    }
+
+    // runs on a pool thread; reads the versions current right now, each one consistent
+    private static byte[] encodeUser(User user, Format format, List<Exercise> catalog) {
+        MoodHistory moods = user.getMoodHistory();
+        CompletionLog completions = user.getCompletions();
+        if (format == Format.BINARY) {
+            return frame(USER, data -> {
+                Codec.writeString(data, user.getUsername());
+                Codec.writeString(data, user.getPasswordHash());
+                Codec.writeString(data, user.getGoal());
+                data.writeInt(user.getExerciseStyle());
+                data.writeInt(moods.size());
+                for (int i = 0; i < moods.size(); i++) {
+                    data.writeByte(moods.levelAt(i));
+                    data.writeLong(moods.timestampAt(i));
+                    Codec.writeString(data, moods.noteAt(i));
+                }
+                data.writeInt(completions.size());
+                for (int i = 0; i < completions.size(); i++) {
+                    data.writeLong(completions.recordAt(i));
+                }
+            });
+        }
+        StringBuilder json = new StringBuilder(128 + 64 * moods.size() + 64 * completions.size());
+        json.append("{\"type\":\"user\",\"username\":");
+        Json.appendString(json, user.getUsername());
+        json.append(",\"passwordHash\":");
+        Json.appendString(json, user.getPasswordHash());
+        json.append(",\"goal\":");
+        Json.appendString(json, user.getGoal());
+        json.append(",\"exerciseStyle\":").append(user.getExerciseStyle()).append(",\"moods\":[");
+        for (int i = 0; i < moods.size(); i++) {
+            json.append(i == 0 ? "" : ",").append("{\"level\":").append(moods.levelAt(i))
+                    .append(",\"timestamp\":").append(moods.timestampAt(i)).append(",\"note\":");
+            Json.appendString(json, moods.noteAt(i)).append('}');
+        }
+        json.append("],\"completions\":[");
+        for (int i = 0; i < completions.size(); i++) {
+            json.append(i == 0 ? "" : ",").append("{\"exercise\":");
+            Json.appendString(json, catalog.get(completions.exerciseIdAt(i)).getName())
+                    .append(",\"epochSeconds\":").append(completions.epochSecondsAt(i))
+                    .append(",\"duration\":").append(completions.durationAt(i)).append('}');
+        }
+        return line(json.append("]}"));
+    }
+
+    private static byte[] encodePost(int id, String username, String topic, String message, long timestamp,
+                                     Format format) {
+        if (format == Format.BINARY) {
+            return frame(POST, data -> {
+                data.writeInt(id);
+                Codec.writeString(data, username);
+                Codec.writeString(data, topic);
+                Codec.writeString(data, message);
+                data.writeLong(timestamp);
+            });
+        }
+        StringBuilder json = new StringBuilder(128 + message.length());
+        json.append("{\"type\":\"post\",\"id\":").append(id).append(",\"username\":");
+        Json.appendString(json, username).append(",\"topic\":");
+        Json.appendString(json, topic).append(",\"message\":");
+        Json.appendString(json, message).append(",\"timestamp\":").append(timestamp);
+        return line(json.append('}'));
+    }
+
+    // [int length][int crc32][type][body], length and crc cover type and body
+    private static byte[] frame(byte type, RecordBody body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(0);
+            out.writeByte(type);
+            body.writeTo(out);
+            byte[] frame = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(frame, 8, frame.length - 8);
+            ByteBuffer.wrap(frame).putInt(frame.length - 8).putInt((int) crc.getValue());
+            return frame;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] line(StringBuilder json) {
+        return json.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // runs on a pool thread: a checked UserRecord, a PostRecord, the end record's
+    // counts, or the reason the record was rejected
+    private static Object decode(byte[] record, Format format, String[] catalog) {
+        try {
+            return format == Format.BINARY ? decodeFrame(ByteBuffer.wrap(record), catalog) : decodeLine(record);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            return "record ends early";
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static Object decodeFrame(ByteBuffer in, String[] catalog) {
+        byte type = in.get();
+        if (type == USER) {
+            UserRecord user = new UserRecord(Codec.readString(in), Codec.readString(in), Codec.readString(in),
+                    in.getInt());
+            user.moods(count(in, 13));
+            for (int i = 0; i < user.levels.length; i++) {
+                user.levels[i] = in.get();
+                user.timestamps[i] = in.getLong();
+                user.notes[i] = Codec.readString(in);
+            }
+            user.completions(count(in, 8));
+            for (int i = 0; i < user.exercises.length; i++) {
+                long completion = in.getLong();
+                int id = CompletionLog.exerciseIdOf(completion);
+                check(id < catalog.length, "completion of exercise id " + id + ", the file's catalog has " + catalog.length);
+                user.exercises[i] = catalog[id];
+                user.epochSeconds[i] = CompletionLog.epochSecondsOf(completion);
+                user.durations[i] = CompletionLog.durationOf(completion);
+            }
+            return user.validate();
+        } else if (type == POST) {
+            return new PostRecord(in.getInt(), Codec.readString(in), Codec.readString(in), Codec.readString(in),
+                    in.getLong());
+        } else if (type == END) {
+            return new long[]{in.getLong(), in.getLong()};
+        }
+        throw new IllegalArgumentException("unknown record type " + type);
+    }
+
+    private static Object decodeLine(byte[] line) {
+        Map<String, Object> json = Json.parseObject(new String(line, StandardCharsets.UTF_8));
+        String type = Json.string(json, "type");
+        if (type.equals("user")) {
+            UserRecord user = new UserRecord(Json.string(json, "username"), Json.string(json, "passwordHash"),
+                    Json.optionalString(json, "goal"), Json.integer(json, "exerciseStyle"));
+            List<Map<String, Object>> moods = Json.objects(json, "moods");
+            user.moods(moods.size());
+            for (int i = 0; i < moods.size(); i++) {
+                int level = Json.integer(moods.get(i), "level");
+                check(level >= 1 && level <= 10, "mood level " + level + " is not 1-10");
+                user.levels[i] = (byte) level;
+                user.timestamps[i] = Json.number(moods.get(i), "timestamp");
+                user.notes[i] = Json.optionalString(moods.get(i), "note");
+            }
+            List<Map<String, Object>> completions = Json.objects(json, "completions");
+            user.completions(completions.size());
+            for (int i = 0; i < completions.size(); i++) {
+                user.exercises[i] = Json.string(completions.get(i), "exercise");
+                user.epochSeconds[i] = Json.number(completions.get(i), "epochSeconds");
+                user.durations[i] = Json.integer(completions.get(i), "duration");
+            }
+            return user.validate();
+        } else if (type.equals("post")) {
+            return new PostRecord(Json.integer(json, "id"), Json.string(json, "username"), Json.string(json, "topic"),
+                    Json.string(json, "message"), Json.number(json, "timestamp"));
+        } else if (type.equals("end")) {
+            return new long[]{Json.number(json, "users"), Json.number(json, "posts")};
+        }
+        throw new IllegalArgumentException("unknown record type '" + type + "'");
+    }
+
+    // an element count, refused when the rest of the record can't hold that many
+    private static int count(ByteBuffer in, int minBytesEach) {
+        int count = in.getInt();
+        check(count >= 0 && count <= in.remaining() / minBytesEach, "count " + count + " doesn't fit the record");
+        return count;
+    }
+
+    private static void check(boolean valid, String problem) {
+        if (!valid) {
+            throw new IllegalArgumentException(problem);
+        }
+    }
+
+    private static String describe(String name) {
+        return name.length() > 40 ? "'" + name.substring(0, 40) + "...'" : "'" + name + "'";
+    }
+
+    private interface RecordBody {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    // one user as read from either format; nothing is built until every field checks out
+    // and the name is known to be free
+    private static final class UserRecord {
+        final String username;
+        final String passwordHash;
+        final String goal;
+        final int exerciseStyle;
+        byte[] levels;
+        long[] timestamps;
+        String[] notes;
+        String[] exercises;
+        long[] epochSeconds;
+        int[] durations;
+        Exercise[] resolved;
+
+        UserRecord(String username, String passwordHash, String goal, int exerciseStyle) {
+            this.username = username;
+            this.passwordHash = passwordHash;
+            this.goal = goal;
+            this.exerciseStyle = exerciseStyle;
+        }
+
+        void moods(int count) {
+            levels = new byte[count];
+            timestamps = new long[count];
+            notes = new String[count];
+        }
+
+        void completions(int count) {
+            exercises = new String[count];
+            epochSeconds = new long[count];
+            durations = new int[count];
+        }
+
+        UserRecord validate() {
+            check(username != null && !username.isEmpty() && username.length() <= MAX_NAME_LENGTH,
+                    "username must be 1-" + MAX_NAME_LENGTH + " characters");
+            check(passwordHash != null && !passwordHash.isEmpty(), "user " + describe(username) + " has no password hash");
+            check((exerciseStyle & ~ExerciseRenderer.ALL) == 0,
+                    "user " + describe(username) + " has unknown exercise style " + exerciseStyle);
+            for (int i = 0; i < levels.length; i++) {
+                check(levels[i] >= 1 && levels[i] <= 10,
+                        "user " + describe(username) + " has mood level " + levels[i] + ", not 1-10");
+                check(timestamps[i] >= 0, "user " + describe(username) + " has a mood entry before 1970");
+            }
+            ExerciseManager exerciseManager = ExerciseManager.getInstance();
+            resolved = new Exercise[exercises.length];
+            for (int i = 0; i < exercises.length; i++) {
+                resolved[i] = exercises[i] == null ? null : exerciseManager.getExercise(exercises[i]);
+                check(resolved[i] != null, "user " + describe(username) + " completed unknown exercise "
+                        + (exercises[i] == null ? "null" : describe(exercises[i])));
+                check(epochSeconds[i] >= 0, "user " + describe(username) + " has a completion before 1970");
+                check(durations[i] >= 0 && durations[i] <= CompletionLog.MAX_DURATION,
+                        "user " + describe(username) + " has a completion of " + durations[i] + " minutes");
+            }
+            return this;
+        }
+
+        // detached: nothing is indexed until the user has won its name, see indexMoodNotes
+        User build() {
+            User user = new User(username, passwordHash);
+            user.applyGoal(goal);
+            user.applyExerciseStyle(exerciseStyle);
+            for (int i = 0; i < levels.length; i++) {
+                user.appendMoodEntry(new MoodEntry(levels[i], notes[i] == null ? "" : notes[i], timestamps[i]));
+            }
+            for (int i = 0; i < resolved.length; i++) {
+                user.applyCompletion(resolved[i].getId(), epochSeconds[i], durations[i]);
+            }
+            return user;
+        }
+    }
+
+    private static final class PostRecord {
+        final int id;
+        final String username;
+        final String topic;
+        final String message;
+        final long timestamp;
+
+        PostRecord(int id, String username, String topic, String message, long timestamp) {
+            check(id > 0, "post id " + id + " out of range");
+            check(username != null && !username.isEmpty(), "post " + id + " has no author");
+            check(topic != null && CommunityManager.getInstance().getTopics().contains(topic),
+                    "post " + id + " is in unknown topic " + (topic == null ? "null" : describe(topic)));
+            check(message != null, "post " + id + " has no message");
+            check(timestamp >= 0, "post " + id + " is dated before 1970");
+            this.id = id;
+            this.username = username;
+            this.topic = topic;
+            this.message = message;
+            this.timestamp = timestamp;
+        }
+    }
+
+    // appends through one direct buffer; a record bigger than the buffer goes straight to the channel
+    private static final class RecordWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        RecordWriter(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(byte[] record) throws IOException {
+            if (record.length > buffer.remaining()) {
+                flush();
+                if (record.length > buffer.capacity()) {
+                    writeFully(ByteBuffer.wrap(record));
+                    return;
+                }
+            }
+            buffer.put(record);
+        }
+
+        void force() throws IOException {
+            flush();
+            channel.force(true);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer data) throws IOException {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // reads frames or lines through one direct buffer, copying out one record at a time
+    private static final class RecordReader implements Closeable {
+        private final Path path;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CRC32 crc = new CRC32();
+        // file offset of the buffer's position, for error messages
+        private long offset;
+
+        RecordReader(Path path) throws IOException {
+            this.path = path;
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            buffer.flip();
+        }
+
+        Format readHeader() throws IOException {
+            if (fill(8) && buffer.getInt(buffer.position()) == MAGIC) {
+                buffer.getInt();
+                int version = buffer.getInt();
+                offset += 8;
+                if (version < 1 || version > FORMAT_VERSION) {
+                    throw new IOException("Unsupported export version " + version + ": " + path);
+                }
+                return Format.BINARY;
+            }
+            Map<String, Object> header = null;
+            if (buffer.hasRemaining() && buffer.get(buffer.position()) == '{') {
+                try {
+                    header = Json.parseObject(new String(nextLine(), StandardCharsets.UTF_8));
+                } catch (IllegalArgumentException e) {
+                    // not a header line, reported below
+                }
+            }
+            if (header == null || !JSON_FORMAT.equals(header.get("format")) || !(header.get("version") instanceof Long)) {
+                throw new IOException("Not a MindWell export: " + path);
+            }
+            long version = (Long) header.get("version");
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("Unsupported export version " + version + ": " + path);
+            }
+            return Format.JSONL;
+        }
+
+        String[] readCatalog() throws IOException {
+            byte[] frame = nextFrame();
+            if (frame == null || frame[0] != CATALOG) {
+                throw new IOException("Export has no exercise catalog: " + path);
+            }
+            ByteBuffer in = ByteBuffer.wrap(frame, 1, frame.length - 1).slice();
+            try {
+                String[] names = new String[count(in, 4)];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = Codec.readString(in);
+                }
+                return names;
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupt exercise catalog: " + path, e);
+            }
+        }
+
+        // null at the end of the file
+        byte[] next(Format format) throws IOException {
+            return format == Format.BINARY ? nextFrame() : nextLine();
+        }
+
+        // type and payload, checksum verified; a bad frame means nothing after it can be trusted
+        private byte[] nextFrame() throws IOException {
+            if (!fill(8)) {
+                if (buffer.hasRemaining()) {
+                    throw new IOException("Truncated record at byte " + offset + " of " + path);
+                }
+                return null;
+            }
+            int length = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            if (length < 1 || length > MAX_RECORD_BYTES) {
+                throw new IOException("Corrupt record length " + length + " at byte " + offset + " of " + path);
+            }
+            byte[] frame = new byte[length];
+            int buffered = Math.min(length, buffer.remaining());
+            buffer.get(frame, 0, buffered);
+            ByteBuffer rest = ByteBuffer.wrap(frame, buffered, length - buffered);
+            while (rest.hasRemaining()) {
+                if (channel.read(rest) < 0) {
+                    throw new IOException("Truncated record at byte " + offset + " of " + path);
+                }
+            }
+            crc.reset();
+            crc.update(frame, 0, length);
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException("Checksum mismatch in record at byte " + offset + " of " + path);
+            }
+            offset += 8 + length;
+            return frame;
+        }
+
+        // without the newline; a last line needn't end in one
+        private byte[] nextLine() throws IOException {
+            ByteArrayOutputStream longLine = null;
+            int scanned = buffer.position();
+            while (true) {
+                for (int i = scanned; i < buffer.limit(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        byte[] line = new byte[i - buffer.position()];
+                        buffer.get(line);
+                        buffer.get();
+                        offset += line.length + 1;
+                        if (longLine == null) {
+                            return line;
+                        }
+                        longLine.write(line);
+                        return longLine.toByteArray();
+                    }
+                }
+                if (buffer.remaining() == buffer.capacity()) {
+                    // longer than the buffer: collect it on the side
+                    if (longLine == null) {
+                        longLine = new ByteArrayOutputStream(2 * BUFFER_BYTES);
+                    }
+                    byte[] part = new byte[buffer.remaining()];
+                    buffer.get(part);
+                    longLine.write(part);
+                    offset += part.length;
+                    if (longLine.size() > MAX_RECORD_BYTES) {
+                        throw new IOException("Line longer than " + MAX_RECORD_BYTES + " bytes at byte " + offset
+                                + " of " + path);
+                    }
+                }
+                int unscanned = buffer.remaining();
+                if (!fill(unscanned + 1)) {
+                    if (!buffer.hasRemaining() && longLine == null) {
+                        return null;
+                    }
+                    byte[] line = new byte[buffer.remaining()];
+                    buffer.get(line);
+                    offset += line.length;
+                    if (longLine == null) {
+                        return line;
+                    }
+                    longLine.write(line);
+                    return longLine.toByteArray();
+                }
+                scanned = buffer.position() + unscanned;
+            }
+        }
+
+        // false when the file ends before needed bytes are buffered
+        private boolean fill(int needed) throws IOException {
+            while (buffer.remaining() < needed) {
+                buffer.compact();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Just enough JSON for these records: objects, arrays, strings, integers, true, false, null.
+    private static final class Json {
+        private final String text;
+        private int at;
+
+        private Json(String text) {
+            this.text = text;
+        }
+
+        static StringBuilder appendString(StringBuilder out, String value) {
+            if (value == null) {
+                return out.append("null");
+            }
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        out.append("\\\"");
+                        break;
+                    case '\\':
+                        out.append("\\\\");
+                        break;
+                    case '\n':
+                        out.append("\\n");
+                        break;
+                    case '\r':
+                        out.append("\\r");
+                        break;
+                    case '\t':
+                        out.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.append(c);
+                        }
+                }
+            }
+            return out.append('"');
+        }
+
+        @SuppressWarnings("unchecked")
+        static Map<String, Object> parseObject(String text) {
+            Json parser = new Json(text);
+            Object value = parser.value();
+            parser.skipSpace();
+            check(value instanceof Map && parser.at == text.length(), "not a JSON object");
+            return (Map<String, Object>) value;
+        }
+
+        static String string(Map<String, Object> json, String field) {
+            Object value = json.get(field);
+            check(value instanceof String, "field '" + field + "' must be a string");
+            return (String) value;
+        }
+
+        static String optionalString(Map<String, Object> json, String field) {
+            Object value = json.get(field);
+            check(value == null || value instanceof String, "field '" + field + "' must be a string or null");
+            return (String) value;
+        }
+
+        static long number(Map<String, Object> json, String field) {
+            Object value = json.get(field);
+            check(value instanceof Long, "field '" + field + "' must be an integer");
+            return (Long) value;
+        }
+
+        static int integer(Map<String, Object> json, String field) {
+            long value = number(json, field);
+            check(value == (int) value, "field '" + field + "' is out of range");
+            return (int) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        static List<Map<String, Object>> objects(Map<String, Object> json, String field) {
+            Object value = json.get(field);
+            check(value instanceof List, "field '" + field + "' must be an array");
+            for (Object element : (List<Object>) value) {
+                check(element instanceof Map, "field '" + field + "' must hold objects");
+            }
+            return (List<Map<String, Object>>) value;
+        }
+
+        private Object value() {
+            skipSpace();
+            check(at < text.length(), "JSON ends early");
+            char c = text.charAt(at);
+            if (c == '{') {
+                Map<String, Object> object = new HashMap<>();
+                at++;
+                skipSpace();
+                if (peek('}')) {
+                    return object;
+                }
+                do {
+                    skipSpace();
+                    check(at < text.length() && text.charAt(at) == '"', "expected a field name at " + at);
+                    String name = string();
+                    skipSpace();
+                    expect(':');
+                    object.put(name, value());
+                    skipSpace();
+                } while (peek(','));
+                expect('}');
+                return object;
+            } else if (c == '[') {
+                List<Object> array = new ArrayList<>();
+                at++;
+                skipSpace();
+                if (peek(']')) {
+                    return array;
+                }
+                do {
+                    array.add(value());
+                    skipSpace();
+                } while (peek(','));
+                expect(']');
+                return array;
+            } else if (c == '"') {
+                return string();
+            } else if (text.startsWith("null", at)) {
+                at += 4;
+                return null;
+            } else if (text.startsWith("true", at)) {
+                at += 4;
+                return Boolean.TRUE;
+            } else if (text.startsWith("false", at)) {
+                at += 5;
+                return Boolean.FALSE;
+            }
+            int start = at;
+            if (c == '-') {
+                at++;
+            }
+            while (at < text.length() && Character.isDigit(text.charAt(at))) {
+                at++;
+            }
+            check(at > start && (at == text.length() || ".eE".indexOf(text.charAt(at)) < 0),
+                    "expected an integer at " + start);
+            try {
+                return Long.parseLong(text.substring(start, at));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("expected an integer at " + start);
+            }
+        }
+
+        private String string() {
+            at++;
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                check(at < text.length(), "unterminated string");
+                char c = text.charAt(at++);
+                if (c == '"') {
+                    return value.toString();
+                } else if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                check(at < text.length(), "unterminated string");
+                char escaped = text.charAt(at++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        check(at + 4 <= text.length(), "bad unicode escape");
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("bad unicode escape at " + at);
+                        }
+                        at += 4;
+                        break;
+                    default:
+                        check(escaped == '"' || escaped == '\\' || escaped == '/', "bad escape at " + (at - 1));
+                        value.append(escaped);
+                }
+            }
+        }
+
+        private void skipSpace() {
+            while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+                at++;
+            }
+        }
+
+        private boolean peek(char c) {
+            if (at < text.length() && text.charAt(at) == c) {
+                at++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            check(peek(c), "expected '" + c + "' at " + at);
+        }
+    }
+
+    static final class Summary {
+        private final long users;
+        private final long posts;
+        private final long skipped;
+        private final long rejected;
+        private final List<String> problems;
+
+        Summary(long users, long posts, long skipped, long rejected, List<String> problems) {
+            this.users = users;
+            this.posts = posts;
+            this.skipped = skipped;
+            this.rejected = rejected;
+            this.problems = problems;
+        }
+
+        public long getUsers() {
+            return users;
+        }
+
+        public long getPosts() {
+            return posts;
+        }
+
+        // already present: a name or post id that was taken
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        // the first few rejections, with their line or record number
+        public List<String> getProblems() {
+            return problems;
+        }
+    }
+}
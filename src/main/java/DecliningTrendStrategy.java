@@ -0,0 +1,18 @@
+class DecliningTrendStrategy implements RecommendationStrategy {
+    // mood points lost per entry before we call it a slide
+    private static final double SLOPE_THRESHOLD = -0.25;
+
+    @Override
+    public boolean appliesTo(MoodFeatures features) {
+        return features.getSampleSize() >= 3 && features.getSlope() <= SLOPE_THRESHOLD;
+    }
+
+    @Override
+    public String getRecommendation(MoodFeatures features) {
+        return " Your mood has been drifting down lately (from about "
+                + String.format("%.1f", features.getAverage() - features.getSlope() * (features.getSampleSize() - 1) / 2)
+                + " to " + features.getLatestLevel() + "/10).\n"
+                + "- Keep logging: noticing the pattern is a first step\n"
+                + "- Consider talking to someone you trust";
+    }
+}
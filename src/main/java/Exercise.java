@@ -0,0 +1,31 @@
+abstract class Exercise {
+    // catalog position, -1 until the exercise is added to the ExerciseManager
+    protected int id = -1;
+    protected String name;
+    protected String description;
+    protected int duration;
+    // the ExerciseRenderer decorations this exercise is shown with, before user preferences
+    protected int decorations = ExerciseRenderer.TIMER | ExerciseRenderer.REMINDER;
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public int getDecorations() {
+        return decorations;
+    }
+
+    public abstract String execute();
+}
@@ -0,0 +1,18 @@
+//decorator
+abstract class ExerciseDecorator extends Exercise {
+    protected Exercise wrappedExercise;
+
+    public ExerciseDecorator(Exercise exercise) {
+        this.wrappedExercise = exercise;
+        this.id = exercise.getId();
+        this.name = exercise.getName();
+        this.description = exercise.getDescription();
+        this.duration = exercise.getDuration();
+        this.decorations = exercise.getDecorations();
+    }
+
+    @Override
+    public String execute() {
+        return wrappedExercise.execute();
+    }
+}
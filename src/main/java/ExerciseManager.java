@@ -0,0 +1,52 @@
+import java.util.*;
+
+// singleton
+// The catalog is the only place exercises are created: every screen, log record and
+// completion refers to these shared instances, by name on disk and by id in memory.
+// Ids are catalog positions, assigned on add and stable for the life of the process.
+class ExerciseManager {
+    private List<Exercise> exercises;
+    private Map<String, Exercise> exercisesByName;
+
+    private ExerciseManager() {
+        exercises = new ArrayList<>();
+        exercisesByName = new HashMap<>();
+    }
+
+    public static ExerciseManager getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final ExerciseManager INSTANCE = new ExerciseManager();
+    }
+
+    public void addDefaultExercises() {
+        addExercise(new BreathingExercise());
+        addExercise(new MeditationExercise());
+        addExercise(new RelaxationExercise());
+        addExercise(new MindfulnessExercise());
+    }
+
+    // startup only, before any session or log replay reads the catalog
+    public void addExercise(Exercise exercise) {
+        if (exercises.size() > CompletionLog.MAX_EXERCISE_ID) {
+            throw new IllegalStateException("Exercise catalog is full");
+        }
+        exercise.id = exercises.size();
+        exercises.add(exercise);
+        exercisesByName.put(exercise.getName(), exercise);
+    }
+
+    public List<Exercise> getAllExercises() {
+        return Collections.unmodifiableList(exercises);
+    }
+
+    public Exercise getExercise(String name) {
+        return exercisesByName.get(name);
+    }
+
+    public Exercise getExercise(int id) {
+        return id >= 0 && id < exercises.size() ? exercises.get(id) : null;
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// singleton
+// Builds the decorator chain for an exercise and style and keeps its rendered text.
+// A style is a small bitmask, so each (exercise id, style) pair gets a fixed slot and
+// serving an exercise is an array read plus a write of the cached chars.
+// Chains nest as Plain(Timer(Reminder(exercise))), the order the screens always used.
+class ExerciseRenderer {
+    static final int TIMER = 1;
+    static final int REMINDER = 2;
+    static final int PLAIN = 4;
+    static final int ALL = TIMER | REMINDER | PLAIN;
+    static final int DEFAULT_STYLE = TIMER | REMINDER;
+
+    private static final int STYLES = ALL + 1;
+    private static final Histogram RENDER_LATENCY = Metrics.getInstance()
+            .latency("mindwell_exercise_render_seconds", "Time to produce an exercise's decorated text");
+
+    private volatile AtomicReferenceArray<char[]> rendered = new AtomicReferenceArray<>(0);
+
+    private ExerciseRenderer() {
+    }
+
+    public static ExerciseRenderer getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final ExerciseRenderer INSTANCE = new ExerciseRenderer();
+    }
+
+    // renders every catalog exercise in every style so no session pays for the first render
+    public void warm() {
+        for (Exercise exercise : ExerciseManager.getInstance().getAllExercises()) {
+            for (int style = 0; style < STYLES; style++) {
+                renderCached(exercise, style);
+            }
+        }
+    }
+
+    // the exercise's own decorations filtered by the user's style; callers must not modify the result
+    public char[] render(Exercise exercise, int userStyle) {
+        long start = System.nanoTime();
+        char[] chars = renderCached(exercise, userStyle);
+        RENDER_LATENCY.recordSince(start);
+        return chars;
+    }
+
+    private char[] renderCached(Exercise exercise, int userStyle) {
+        int chain = (exercise.getDecorations() | PLAIN) & userStyle;
+        int slot = exercise.getId() * STYLES + chain;
+        AtomicReferenceArray<char[]> cache = rendered;
+        if (slot >= cache.length()) {
+            cache = grow(slot + 1);
+        }
+        char[] chars = cache.get(slot);
+        if (chars == null) {
+            // two threads may both render a cold slot; the results are equal and either one wins
+            chars = decorate(exercise, chain).execute().toCharArray();
+            cache.set(slot, chars);
+        }
+        return chars;
+    }
+
+    public static Exercise decorate(Exercise exercise, int chain) {
+        Exercise decorated = exercise;
+        if ((chain & REMINDER) != 0) {
+            decorated = new ReminderDecorator(decorated);
+        }
+        if ((chain & TIMER) != 0) {
+            decorated = new TimerDecorator(decorated);
+        }
+        if ((chain & PLAIN) != 0) {
+            decorated = new PlainTextDecorator(decorated);
+        }
+        return decorated;
+    }
+
+    private synchronized AtomicReferenceArray<char[]> grow(int minimumLength) {
+        AtomicReferenceArray<char[]> current = rendered;
+        if (current.length() >= minimumLength) {
+            return current;
+        }
+        AtomicReferenceArray<char[]> larger = new AtomicReferenceArray<>(
+                Math.max(minimumLength, ExerciseManager.getInstance().getAllExercises().size() * STYLES));
+        for (int i = 0; i < current.length(); i++) {
+            larger.set(i, current.get(i));
+        }
+        rendered = larger;
+        return larger;
+    }
+}
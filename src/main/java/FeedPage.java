@@ -0,0 +1,27 @@
+import java.util.*;
+
+class FeedPage {
+    static final int FIRST = Integer.MAX_VALUE;
+    static final FeedPage EMPTY = new FeedPage(Collections.emptyList(), false);
+
+    private List<CommunityPost> posts;
+    private boolean more;
+
+    public FeedPage(List<CommunityPost> posts, boolean more) {
+        this.posts = posts;
+        this.more = more;
+    }
+
+    public List<CommunityPost> getPosts() {
+        return posts;
+    }
+
+    public boolean hasMore() {
+        return more;
+    }
+
+    // pass back to fetch the next, older page
+    public int getNextCursor() {
+        return posts.isEmpty() ? FIRST : posts.get(posts.size() - 1).getId();
+    }
+}
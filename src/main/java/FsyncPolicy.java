@@ -0,0 +1,6 @@
+//persistence
+enum FsyncPolicy {
+    ALWAYS,   // every group commit is forced to disk before the writers return
+    INTERVAL, // forced at most once per interval, writers never wait
+    NEVER     // left to the OS page cache
+}
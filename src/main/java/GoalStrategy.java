@@ -0,0 +1,11 @@
+class GoalStrategy implements RecommendationStrategy {
+    @Override
+    public boolean appliesTo(MoodFeatures features) {
+        return features.getGoal() != null && !features.getGoal().isEmpty();
+    }
+
+    @Override
+    public String getRecommendation(MoodFeatures features) {
+        return " Remember your goal: " + features.getGoal();
+    }
+}
@@ -0,0 +1,15 @@
+class HighMoodStrategy implements RecommendationStrategy {
+    @Override
+    public boolean appliesTo(MoodFeatures features) {
+        return features.getLatestLevel() > 6;
+    }
+
+    @Override
+    public String getRecommendation(MoodFeatures features) {
+        return " You're feeling great! Keep it up:\n" +
+                "- Share your positive energy in the community\n" +
+                "- Try a challenging exercise\n" +
+                "- Help someone who might be struggling\n" +
+                "- Reflect on what made today special";
+    }
+}
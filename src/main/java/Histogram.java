@@ -0,0 +1,103 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear buckets in the style of HdrHistogram: values below 64 get a bucket each, and
+// every power of two above that is split into 32 buckets, so any recorded value is known
+// to within about 3%. Recording is a bucket index computation plus one atomic increment.
+class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+    private static final double[] EXPORTED_QUANTILES = {0.5, 0.99, 0.999};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    private final double exportDivisor;
+
+    Histogram(double exportDivisor) {
+        this.exportDivisor = exportDivisor;
+    }
+
+    // negative values are recorded as zero
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(indexOf(v));
+        count.increment();
+        sum.add(v);
+        if (v > max.get()) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    // upper bound of the bucket holding the q-th value, capped at the recorded max
+    public long getValueAtQuantile(double q) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    void appendTo(StringBuilder text, String name) {
+        int brace = name.indexOf('{');
+        String base = brace < 0 ? name : name.substring(0, brace);
+        String labels = brace < 0 ? "" : name.substring(brace + 1, name.length() - 1) + ",";
+        for (double q : EXPORTED_QUANTILES) {
+            text.append(base).append("{").append(labels).append("quantile=\"").append(q).append("\"} ")
+                    .append(getValueAtQuantile(q) / exportDivisor).append('\n');
+        }
+        String suffixLabels = brace < 0 ? "" : name.substring(brace);
+        text.append(base).append("_max").append(suffixLabels).append(' ').append(max.get() / exportDivisor).append('\n');
+        text.append(base).append("_sum").append(suffixLabels).append(' ').append(sum.sum() / exportDivisor).append('\n');
+        text.append(base).append("_count").append(suffixLabels).append(' ').append(count.sum()).append('\n');
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS
+                + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long highestValueIn(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowest = (long) ((index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
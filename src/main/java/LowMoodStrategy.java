@@ -0,0 +1,15 @@
+class LowMoodStrategy implements RecommendationStrategy {
+    @Override
+    public boolean appliesTo(MoodFeatures features) {
+        return features.getLatestLevel() <= 3;
+    }
+
+    @Override
+    public String getRecommendation(MoodFeatures features) {
+        return " We're here for you. Try:\n" +
+                "- Deep breathing exercise\n" +
+                "- Talk to someone in the community\n" +
+                "- Take a short walk\n" +
+                "- Listen to calming music";
+    }
+}
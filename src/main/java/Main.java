@@ -0,0 +1,43 @@
+import java.nio.file.*;
+import java.time.LocalDate;
+
+public class Main {
+    private static final String USAGE =
+            "Usage: Main [--server [port] | --score-risk [yyyy-mm-dd] | --export <file> [jsonl] | --import <file>]";
+
+    public static void main(String[] args) throws Exception {
+        // checked before anything opens, so a missing file never falls through to the console
+        if (args.length == 1 && (args[0].equals("--export") || args[0].equals("--import"))) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        // modes that only read must say so before the app opens its storage
+        if (args.length > 0 && (args[0].equals("--export") || args[0].equals("--score-risk"))) {
+            StorageEngine.getInstance().setReadOnly();
+        }
+        MindWellApp app;
+        try {
+            app = MindWellApp.getInstance();
+        } catch (ExceptionInInitializerError e) {
+            // e.g. the data directory is held by a running instance
+            if (e.getCause() instanceof IllegalStateException) {
+                System.err.println(e.getCause().getMessage());
+                System.exit(1);
+            }
+            throw e;
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            app.serve(args.length > 1 ? Integer.parseInt(args[1]) : MindWellServer.DEFAULT_PORT);
+        } else if (args.length > 0 && args[0].equals("--score-risk")) {
+            // defaults to yesterday, the last complete day, so a rerun reproduces the same output
+            app.scoreRisk(args.length > 1 ? LocalDate.parse(args[1]) : LocalDate.now().minusDays(1));
+        } else if (args.length > 1 && args[0].equals("--export")) {
+            app.exportData(Paths.get(args[1]), args.length > 2 && args[2].equals("jsonl")
+                    ? DataTransfer.Format.JSONL : DataTransfer.Format.BINARY);
+        } else if (args.length > 1 && args[0].equals("--import")) {
+            app.importData(Paths.get(args[1]));
+        } else {
+            app.run();
+        }
+    }
+}
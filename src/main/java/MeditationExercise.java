@@ -0,0 +1,17 @@
+class MeditationExercise extends Exercise {
+    public MeditationExercise() {
+        this.name = "Guided Meditation";
+        this.description = "Find your inner peace";
+        this.duration = 10;
+    }
+
+    @Override
+    public String execute() {
+        return " Guided Meditation:\n" +
+                "1. Sit comfortably\n" +
+                "2. Close your eyes\n" +
+                "3. Focus on your breath\n" +
+                "4. Let thoughts pass without judgment\n" +
+                "5. Stay present for 10 minutes";
+    }
+}
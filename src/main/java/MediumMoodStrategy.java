@@ -0,0 +1,15 @@
+class MediumMoodStrategy implements RecommendationStrategy {
+    @Override
+    public boolean appliesTo(MoodFeatures features) {
+        return features.getLatestLevel() > 3 && features.getLatestLevel() <= 6;
+    }
+
+    @Override
+    public String getRecommendation(MoodFeatures features) {
+        return " You're doing okay! Consider:\n" +
+                "- A short meditation session\n" +
+                "- Journaling your thoughts\n" +
+                "- Connect with the community\n" +
+                "- Set a small goal for today";
+    }
+}
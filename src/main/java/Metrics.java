@@ -0,0 +1,83 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+//metrics
+// In-process registry of counters, gauges and histograms, keyed by name plus an optional
+// label set in the Prometheus text format ("name{topic=\"Sleep Issues\"}"). Metrics are
+// created once, usually into static final fields, so recording never touches the map.
+// scrape() renders everything as Prometheus text for MetricsEndpoint.
+class Metrics {
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> help = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Metrics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final Metrics INSTANCE = new Metrics();
+    }
+
+    public Counter counter(String name, String description) {
+        help.putIfAbsent(name, description);
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    // records nanoseconds, exported in seconds
+    public Histogram latency(String name, String description) {
+        return histogram(name, description, 1e9);
+    }
+
+    // exported values are the recorded ones divided by exportDivisor
+    public Histogram histogram(String name, String description, double exportDivisor) {
+        help.putIfAbsent(baseName(name), description);
+        return histograms.computeIfAbsent(name, n -> new Histogram(exportDivisor));
+    }
+
+    public void gauge(String name, String description, LongSupplier value) {
+        help.putIfAbsent(baseName(name), description);
+        gauges.put(name, value);
+    }
+
+    static String labeled(String name, String label, String value) {
+        return name + "{" + label + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    public String scrape() {
+        StringBuilder text = new StringBuilder(4096);
+        Set<String> described = new HashSet<>();
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            describe(text, described, entry.getKey(), "counter");
+            text.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> entry : new TreeMap<>(gauges).entrySet()) {
+            describe(text, described, entry.getKey(), "gauge");
+            text.append(entry.getKey()).append(' ').append(entry.getValue().getAsLong()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            describe(text, described, entry.getKey(), "summary");
+            entry.getValue().appendTo(text, entry.getKey());
+        }
+        return text.toString();
+    }
+
+    private void describe(StringBuilder text, Set<String> described, String name, String type) {
+        String base = baseName(name);
+        if (described.add(base)) {
+            text.append("# HELP ").append(base).append(' ').append(help.getOrDefault(base, base)).append('\n');
+            text.append("# TYPE ").append(base).append(' ').append(type).append('\n');
+        }
+    }
+
+    private static String baseName(String name) {
+        int brace = name.indexOf('{');
+        return brace < 0 ? name : name.substring(0, brace);
+    }
+}
@@ -0,0 +1,37 @@
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import com.sun.net.httpserver.HttpServer;
+
+// GET /metrics returns Metrics.scrape() as Prometheus text, served by the JDK's HttpServer
+class MetricsEndpoint {
+    static final int DEFAULT_PORT = 9464;
+
+    private final HttpServer server;
+
+    public MetricsEndpoint(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext("/metrics", exchange -> {
+            try {
+                byte[] body = Metrics.getInstance().scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void close() {
+        server.stop(0);
+    }
+}
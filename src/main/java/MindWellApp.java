@@ -0,0 +1,154 @@
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.time.LocalDate;
+
+//singleton
+class MindWellApp {
+    private static final int NOTIFICATION_QUEUE_CAPACITY = 10_000;
+    private static final int NOTIFICATION_WORKERS = 2;
+    private static final String DATA_DIRECTORY = "mindwell-data";
+    private static final long SNAPSHOT_EVERY_RECORDS = 100_000;
+    private static final int RISK_PARTITIONS = 64;
+    private static final int PASSWORD_ITERATIONS = PasswordHasher.DEFAULT_ITERATIONS;
+    // half the cores at most, so a login storm leaves room for everything else
+    private static final int PASSWORD_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int PASSWORD_QUEUE_CAPACITY = CredentialVerifier.DEFAULT_QUEUE_CAPACITY;
+    private static final int METRICS_PORT = MetricsEndpoint.DEFAULT_PORT;
+    private static final int MAX_SESSIONS = SessionTokens.DEFAULT_MAX_SESSIONS;
+    private static final long SESSION_IDLE_MILLIS = SessionTokens.DEFAULT_IDLE_MILLIS;
+    private static final long SESSION_ABSOLUTE_MILLIS = SessionTokens.DEFAULT_ABSOLUTE_MILLIS;
+    private static final long SESSION_SWEEP_SECONDS = 60;
+    private static final int OUTREACH_LIMIT = 1_000;
+    private static final int SHARDS = 16;
+    // posts past either limit move to compressed segments on disk; 0 turns a limit off
+    private static final long POST_HOT_MAX_AGE_MILLIS = 30L * MoodHistory.DAY_MILLIS;
+    private static final long POST_HOT_MAX_BYTES = 64L << 20;
+    private static final long POST_RETENTION_CHECK_SECONDS = 60;
+    private static final int CHANGE_STREAM_CAPACITY = ChangeStream.DEFAULT_CAPACITY;
+
+    private ExerciseManager exerciseManager;
+    private CommunityManager communityManager;
+
+    private MindWellApp() {
+        exerciseManager = ExerciseManager.getInstance();
+        communityManager = CommunityManager.getInstance();
+        communityManager.enableAsyncNotifications(NOTIFICATION_QUEUE_CAPACITY, NOTIFICATION_WORKERS);
+        UserManager userManager = UserManager.getInstance();
+        userManager.configurePasswordHashing(PASSWORD_ITERATIONS, PASSWORD_WORKERS, PASSWORD_QUEUE_CAPACITY);
+        SessionTokens.getInstance().configure(MAX_SESSIONS, SESSION_IDLE_MILLIS, SESSION_ABSOLUTE_MILLIS);
+        SessionTokens.getInstance().startSweeper(SESSION_SWEEP_SECONDS);
+        ChangeStream.getInstance().configure(CHANGE_STREAM_CAPACITY);
+        // before the log is replayed, so recovery fills the final shards directly
+        userManager.configureShards(SHARDS);
+        communityManager.configureShards(SHARDS);
+        initializeDefaultExercises();
+        // exercises must exist before the log is replayed, completions refer to them by name,
+        // and so must the cold posts, so replay doesn't bring moved posts back into memory
+        communityManager.openColdStore(Paths.get(DATA_DIRECTORY, "cold-posts"));
+        StorageEngine storage = StorageEngine.getInstance();
+        storage.open(Paths.get(DATA_DIRECTORY), FsyncPolicy.INTERVAL, SNAPSHOT_EVERY_RECORDS);
+        // past every sequence an earlier run handed out, so subscribers' saved offsets stay meaningful
+        ChangeStream.getInstance().startAt(storage.getLastLsn() + 1);
+        // both write; a read-only process leaves the data exactly as it found it
+        if (!storage.isReadOnly()) {
+            communityManager.enableRetention(POST_HOT_MAX_AGE_MILLIS, POST_HOT_MAX_BYTES, POST_RETENTION_CHECK_SECONDS);
+            userManager.migratePlaintextPasswords();
+        }
+        registerGauges();
+    }
+
+    public static MindWellApp getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    // Initialization-on-demand holder, the idiom every singleton here uses: the JVM
+    // initializes Holder exactly once, on the first getInstance(), and class initialization
+    // is thread-safe, so concurrent first calls all see one instance and later calls take no lock.
+    private static class Holder {
+        static final MindWellApp INSTANCE = new MindWellApp();
+    }
+
+    private void registerGauges() {
+        Metrics metrics = Metrics.getInstance();
+        UserManager userManager = UserManager.getInstance();
+        metrics.gauge("mindwell_users", "Registered users", () -> userManager.getUsers().size());
+        metrics.gauge("mindwell_sessions", "Live session tokens", () -> SessionTokens.getInstance().size());
+        metrics.gauge("mindwell_credential_queue_depth", "Password checks waiting for a worker",
+                () -> userManager.getCredentialVerifier().getQueueDepth());
+        metrics.gauge("mindwell_notification_queue_depth", "Notifications waiting for a dispatcher worker",
+                () -> communityManager.getNotificationDispatcher().getQueueDepth());
+        ChangeStream changes = ChangeStream.getInstance();
+        metrics.gauge("mindwell_change_stream_sequence", "Sequence number of the next change event",
+                changes::getNextSequence);
+        metrics.gauge("mindwell_change_stream_max_lag", "Events the slowest change stream subscriber is behind",
+                changes::getMaxLag);
+        Runtime runtime = Runtime.getRuntime();
+        metrics.gauge("mindwell_heap_used_bytes", "JVM heap in use", () -> runtime.totalMemory() - runtime.freeMemory());
+        metrics.gauge("mindwell_heap_max_bytes", "JVM heap limit", runtime::maxMemory);
+        metrics.gauge("mindwell_posts_hot_bytes", "Estimated heap held by in-memory posts",
+                communityManager::getHotBytes);
+        metrics.gauge("mindwell_posts_cold", "Posts in cold segments", () -> communityManager.getColdStore().getPostCount());
+        metrics.gauge("mindwell_posts_cold_bytes", "Size of the cold post segments",
+                () -> communityManager.getColdStore().getSegmentBytes());
+        // skew shows up here first
+        for (int i = 0; i < SHARDS; i++) {
+            ConcurrentMap<String, User> userShard = userManager.getShardRouter().getShards().get(i);
+            CommunityShard communityShard = communityManager.getShardRouter().getShards().get(i);
+            String shard = String.valueOf(i);
+            metrics.gauge(Metrics.labeled("mindwell_shard_users", "shard", shard), "Users per shard", userShard::size);
+            metrics.gauge(Metrics.labeled("mindwell_shard_posts", "shard", shard), "Posts per shard",
+                    communityShard::getPostCount);
+        }
+    }
+
+    private void initializeDefaultExercises() {
+        exerciseManager.addDefaultExercises();
+        ExerciseRenderer.getInstance().warm();
+    }
+
+    public void run() {
+        Session session = new Session(new Scanner(System.in), new PrintWriter(System.out));
+        session.run();
+        System.exit(0);
+    }
+
+    // blocks serving network sessions until the process is stopped
+    public void serve(int port) throws IOException, InterruptedException {
+        MindWellServer server = new MindWellServer(new InetSocketAddress(port));
+        server.start();
+        MetricsEndpoint metrics = new MetricsEndpoint(new InetSocketAddress(METRICS_PORT));
+        metrics.start();
+        System.out.println("MindWell server listening on port " + server.getPort()
+                + ", metrics on http://localhost:" + metrics.getPort() + "/metrics");
+        server.awaitTermination();
+    }
+
+    public void scoreRisk(LocalDate asOf) throws IOException {
+        RiskScoringJob job = new RiskScoringJob(Paths.get(DATA_DIRECTORY, "risk"), asOf.toEpochDay(),
+                RISK_PARTITIONS, Runtime.getRuntime().availableProcessors(), OUTREACH_LIMIT);
+        RiskScoringJob.Summary summary = job.run();
+        System.out.println("Scored " + summary.getUsersScored() + " users as of " + asOf + ": "
+                + summary.getUsersFlagged() + " flagged, " + summary.getPartitionsResumed() + "/"
+                + RISK_PARTITIONS + " partitions resumed from an earlier run");
+        System.out.println("Outreach list: " + summary.getOutreachFile());
+        System.out.println("Recommendations: " + summary.getRecommendationsFile());
+    }
+
+    public void exportData(Path file, DataTransfer.Format format) throws IOException {
+        DataTransfer.Summary summary = new DataTransfer(Runtime.getRuntime().availableProcessors())
+                .exportTo(file, format);
+        System.out.println("Exported " + summary.getUsers() + " users and " + summary.getPosts() + " posts to " + file);
+    }
+
+    public void importData(Path file) throws IOException {
+        DataTransfer.Summary summary = new DataTransfer(Runtime.getRuntime().availableProcessors()).importFrom(file);
+        System.out.println("Imported " + summary.getUsers() + " users and " + summary.getPosts() + " posts from "
+                + file + ": " + summary.getSkipped() + " already present, " + summary.getRejected() + " rejected");
+        for (String problem : summary.getProblems()) {
+            System.out.println("  " + problem);
+        }
+    }
+}
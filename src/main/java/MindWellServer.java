@@ -0,0 +1,110 @@
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//server
+// Serves one Session per TCP connection, each on its own thread. On runtimes with
+// virtual threads (Java 21+) those are used, so idle connections cost a few KB;
+// otherwise sessions run on daemon platform threads with a small stack.
+class MindWellServer {
+    static final int DEFAULT_PORT = 7070;
+    private static final int BACKLOG = 1024;
+    private static final long SESSION_STACK_BYTES = 256 * 1024;
+    private static final int IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000;
+
+    private final ServerSocket serverSocket;
+    private final ThreadFactory sessionThreads;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private Thread acceptor;
+    private volatile boolean running;
+
+    // port 0 picks a free port, handy for loopback tests
+    public MindWellServer(InetSocketAddress address) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(address, BACKLOG);
+        sessionThreads = sessionThreadFactory();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        acceptor = new Thread(this::acceptLoop, "session-acceptor");
+        acceptor.start();
+    }
+
+    public void awaitTermination() throws InterruptedException {
+        acceptor.join();
+    }
+
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                sessionThreads.newThread(() -> serve(socket)).start();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        activeSessions.incrementAndGet();
+        try (Socket connection = socket) {
+            Scanner in = new Scanner(connection.getInputStream(), StandardCharsets.UTF_8);
+            PrintWriter out = new PrintWriter(new BufferedWriter(
+                    new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8), 1024));
+            new Session(in, out).run();
+        } catch (IOException e) {
+            // connection dropped
+        } finally {
+            connections.remove(socket);
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    private static ThreadFactory sessionThreadFactory() {
+        try {
+            // Thread.ofVirtual().factory(), looked up reflectively so the code still builds on Java 17
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return task -> {
+                Thread thread = new Thread(null, task, "session-" + counter.incrementAndGet(), SESSION_STACK_BYTES);
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
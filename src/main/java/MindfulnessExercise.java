@@ -0,0 +1,17 @@
+class MindfulnessExercise extends Exercise {
+    public MindfulnessExercise() {
+        this.name = "Mindfulness Practice";
+        this.description = "Be present in the moment";
+        this.duration = 7;
+    }
+
+    @Override
+    public String execute() {
+        return " Mindfulness Practice:\n" +
+                "1. Notice 5 things you can see\n" +
+                "2. Notice 4 things you can touch\n" +
+                "3. Notice 3 things you can hear\n" +
+                "4. Notice 2 things you can smell\n" +
+                "5. Notice 1 thing you can taste";
+    }
+}
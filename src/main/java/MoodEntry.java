@@ -0,0 +1,51 @@
+import java.time.Instant;
+
+class MoodEntry {
+    private int moodLevel;
+    private String note;
+    private long timestamp;
+
+    public MoodEntry(int moodLevel, String note) {
+        this(moodLevel, note, System.currentTimeMillis());
+    }
+
+    // timestamp is in epoch milliseconds
+    public MoodEntry(int moodLevel, String note, long timestamp) {
+        this.moodLevel = moodLevel;
+        this.note = note;
+        this.timestamp = timestamp;
+    }
+
+    public int getMoodLevel() {
+        return moodLevel;
+    }
+
+    public String getNote() {
+        return note;
+    }
+
+    public Instant getTimestamp() {
+        return Instant.ofEpochMilli(timestamp);
+    }
+
+    public long getTimestampMillis() {
+        return timestamp;
+    }
+
+    public StringBuilder appendTo(StringBuilder out) {
+        return appendPrefix(out, moodLevel, timestamp).append(note);
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(64)).toString();
+    }
+
+    // "[yyyy-MM-dd HH:mm] icon level/10 - ", the note follows
+    static StringBuilder appendPrefix(StringBuilder out, int moodLevel, long timestamp) {
+        String moodIcon = moodLevel <= 3 ? "😔" : moodLevel <= 6 ? "😐" : "😊";
+        out.append('[');
+        TimestampFormat.appendTo(out, timestamp);
+        return out.append("] ").append(moodIcon).append(' ').append(moodLevel).append("/10 - ");
+    }
+}
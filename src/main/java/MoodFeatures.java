@@ -0,0 +1,89 @@
+// What the strategies see: the latest level and the shape of the most recent entries,
+// plus exercise and goal context. Built once per data version, never mutated.
+class MoodFeatures {
+    // recent entries the trend features are computed over
+    static final int WINDOW = 14;
+
+    private final int latestLevel;
+    private final int sampleSize;
+    private final double average;
+    private final double slope;
+    private final double volatility;
+    private final String untriedExercise;
+    private final String goal;
+
+    MoodFeatures(int latestLevel, int sampleSize, double average, double slope, double volatility,
+                 String untriedExercise, String goal) {
+        this.latestLevel = latestLevel;
+        this.sampleSize = sampleSize;
+        this.average = average;
+        this.slope = slope;
+        this.volatility = volatility;
+        this.untriedExercise = untriedExercise;
+        this.goal = goal;
+    }
+
+    static MoodFeatures of(User user) {
+        MoodHistory history = user.getMoodHistory();
+        int size = history.size();
+        int n = Math.min(size, WINDOW);
+        int first = size - n;
+
+        // least-squares slope against entry index, population standard deviation
+        double meanX = (n - 1) / 2.0;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += history.levelAt(first + i);
+        }
+        double mean = sum / n;
+        double covariance = 0;
+        double varianceX = 0;
+        double varianceY = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = i - meanX;
+            double dy = history.levelAt(first + i) - mean;
+            covariance += dx * dy;
+            varianceX += dx * dx;
+            varianceY += dy * dy;
+        }
+        double slope = varianceX == 0 ? 0 : covariance / varianceX;
+
+        String untried = null;
+        for (Exercise exercise : ExerciseManager.getInstance().getAllExercises()) {
+            if (!user.hasCompleted(exercise)) {
+                untried = exercise.getName();
+                break;
+            }
+        }
+        return new MoodFeatures(history.levelAt(size - 1), n, mean, slope, Math.sqrt(varianceY / n),
+                untried, user.getGoal());
+    }
+
+    public int getLatestLevel() {
+        return latestLevel;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public double getSlope() {
+        return slope;
+    }
+
+    public double getVolatility() {
+        return volatility;
+    }
+
+    public String getUntriedExercise() {
+        return untriedExercise;
+    }
+
+    public String getGoal() {
+        return goal;
+    }
+}
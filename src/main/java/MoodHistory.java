@@ -0,0 +1,273 @@
+import java.util.*;
+
+// Mood history kept column-wise: one byte per level and one long per timestamp, with
+// notes parked off-heap in the NoteStore. Entries are only materialized when asked for.
+// Rows stay sorted by time and a per-day index carries each day's sum and count,
+// so range queries are a binary search plus the rows or days in range.
+// Every instance is an immutable version. append returns the next version, which writes
+// past this one's size into the same arrays, so a reader holding an older version never
+// sees a change; the newest version alone may be appended to, by one writer at a time.
+// The last day's running sum and count live in the version itself for the same reason.
+class MoodHistory extends AbstractList<MoodEntry> implements RandomAccess {
+    static final long DAY_MILLIS = 86_400_000L;
+    static final MoodHistory EMPTY = new MoodHistory(new byte[0], new long[0], new long[0], 0,
+            new long[0], new int[0], new int[0], 0, 0, 0);
+
+    private final byte[] levels;
+    private final long[] timestamps;
+    private final long[] noteRefs;
+    private final int size;
+
+    // days[dayTotal - 1] belongs to this version's lastDaySum and lastDayCount
+    private final long[] days;
+    private final int[] daySum;
+    private final int[] dayCount;
+    private final int dayTotal;
+    private final int lastDaySum;
+    private final int lastDayCount;
+
+    private MoodHistory(byte[] levels, long[] timestamps, long[] noteRefs, int size,
+                        long[] days, int[] daySum, int[] dayCount, int dayTotal, int lastDaySum, int lastDayCount) {
+        this.levels = levels;
+        this.timestamps = timestamps;
+        this.noteRefs = noteRefs;
+        this.size = size;
+        this.days = days;
+        this.daySum = daySum;
+        this.dayCount = dayCount;
+        this.dayTotal = dayTotal;
+        this.lastDaySum = lastDaySum;
+        this.lastDayCount = lastDayCount;
+    }
+
+    MoodHistory append(int level, String note, long timestamp) {
+        long noteRef = NoteStore.getInstance().store(note);
+        if (size > 0 && timestamp < timestamps[size - 1]) {
+            // a late entry (clock skew, import) goes into fresh arrays; rare, so it pays O(N)
+            int row = upperBound(timestamp);
+            int capacity = Math.max(levels.length, size + 1);
+            byte[] newLevels = new byte[capacity];
+            long[] newTimestamps = new long[capacity];
+            long[] newNoteRefs = new long[capacity];
+            System.arraycopy(levels, 0, newLevels, 0, row);
+            System.arraycopy(timestamps, 0, newTimestamps, 0, row);
+            System.arraycopy(noteRefs, 0, newNoteRefs, 0, row);
+            System.arraycopy(levels, row, newLevels, row + 1, size - row);
+            System.arraycopy(timestamps, row, newTimestamps, row + 1, size - row);
+            System.arraycopy(noteRefs, row, newNoteRefs, row + 1, size - row);
+            newLevels[row] = (byte) level;
+            newTimestamps[row] = timestamp;
+            newNoteRefs[row] = noteRef;
+            return withLateDay(newLevels, newTimestamps, newNoteRefs, level, MoodStats.dayOf(timestamp));
+        }
+
+        byte[] newLevels = levels;
+        long[] newTimestamps = timestamps;
+        long[] newNoteRefs = noteRefs;
+        if (size == levels.length) {
+            int capacity = Math.max(8, size * 2);
+            newLevels = Arrays.copyOf(levels, capacity);
+            newTimestamps = Arrays.copyOf(timestamps, capacity);
+            newNoteRefs = Arrays.copyOf(noteRefs, capacity);
+        }
+        newLevels[size] = (byte) level;
+        newTimestamps[size] = timestamp;
+        newNoteRefs[size] = noteRef;
+
+        long day = MoodStats.dayOf(timestamp);
+        if (dayTotal > 0 && days[dayTotal - 1] == day) {
+            return new MoodHistory(newLevels, newTimestamps, newNoteRefs, size + 1,
+                    days, daySum, dayCount, dayTotal, lastDaySum + level, lastDayCount + 1);
+        }
+        long[] newDays = days;
+        int[] newDaySum = daySum;
+        int[] newDayCount = dayCount;
+        if (dayTotal == days.length) {
+            int capacity = Math.max(8, dayTotal * 2);
+            newDays = Arrays.copyOf(days, capacity);
+            newDaySum = Arrays.copyOf(daySum, capacity);
+            newDayCount = Arrays.copyOf(dayCount, capacity);
+        }
+        if (dayTotal > 0) {
+            // the previous last day is complete now and can be written to the shared arrays
+            newDaySum[dayTotal - 1] = lastDaySum;
+            newDayCount[dayTotal - 1] = lastDayCount;
+        }
+        newDays[dayTotal] = day;
+        return new MoodHistory(newLevels, newTimestamps, newNoteRefs, size + 1,
+                newDays, newDaySum, newDayCount, dayTotal + 1, level, 1);
+    }
+
+    // entries with from <= timestamp < to, as a view over the columns
+    public List<MoodEntry> between(long from, long to) {
+        int start = lowerBound(from);
+        int end = Math.max(start, lowerBound(to));
+        return subList(start, end);
+    }
+
+    public List<MoodEntry> last(int count) {
+        return subList(Math.max(0, size - count), size);
+    }
+
+    // copies the per-day index for fromDay <= day < toDay into the caller's arrays,
+    // which must hold toDay - fromDay slots; returns the number of days copied
+    int copyDays(long fromDay, long toDay, long[] dayOut, int[] sumOut, int[] countOut) {
+        int start = dayLowerBound(fromDay);
+        int count = dayLowerBound(toDay) - start;
+        for (int i = 0; i < count; i++) {
+            dayOut[i] = days[start + i];
+            sumOut[i] = sumOfDay(start + i);
+            countOut[i] = countOfDay(start + i);
+        }
+        return count;
+    }
+
+    // one summary per calendar day that has entries, oldest first
+    public List<MoodSummary> dailyAverages(long from, long to) {
+        List<MoodSummary> result = new ArrayList<>();
+        int end = dayLowerBound(MoodStats.dayOf(to - 1) + 1);
+        for (int i = dayLowerBound(MoodStats.dayOf(from)); i < end; i++) {
+            result.add(new MoodSummary(days[i], sumOfDay(i), countOfDay(i)));
+        }
+        return result;
+    }
+    // Monday-based weeks; only the days inside the range are counted
+    public List<MoodSummary> weeklyAverages(long from, long to) {
+        List<MoodSummary> result = new ArrayList<>();
+        long week = Long.MIN_VALUE;
+        long sum = 0;
+        int count = 0;
+        for (MoodSummary day : dailyAverages(from, to)) {
+            long dayWeek = weekStart(day.getEpochDay());
+            if (dayWeek != week && count > 0) {
+                result.add(new MoodSummary(week, sum, count));
+                sum = 0;
+                count = 0;
+            }
+            week = dayWeek;
+            sum += day.getSum();
+            count += day.getCount();
+        }
+        if (count > 0) {
+            result.add(new MoodSummary(week, sum, count));
+        }
+        return result;
+    }
+
+    @Override
+    public MoodEntry get(int index) {
+        Objects.checkIndex(index, size);
+        return new MoodEntry(levels[index], noteAt(index), timestamps[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int levelAt(int index) {
+        Objects.checkIndex(index, size);
+        return levels[index];
+    }
+
+    public long timestampAt(int index) {
+        Objects.checkIndex(index, size);
+        return timestamps[index];
+    }
+
+    public String noteAt(int index) {
+        Objects.checkIndex(index, size);
+        return NoteStore.getInstance().load(noteRefs[index]);
+    }
+
+    // renders like MoodEntry.toString, straight from the columns
+    public StringBuilder appendEntry(int index, StringBuilder out) {
+        Objects.checkIndex(index, size);
+        MoodEntry.appendPrefix(out, levels[index], timestamps[index]);
+        return NoteStore.getInstance().appendTo(noteRefs[index], out);
+    }
+
+    private int sumOfDay(int index) {
+        return index == dayTotal - 1 ? lastDaySum : daySum[index];
+    }
+
+    private int countOfDay(int index) {
+        return index == dayTotal - 1 ? lastDayCount : dayCount[index];
+    }
+
+    // the next version over freshly copied rows; the day index is copied too, with the
+    // late entry's day added in place or inserted, so no timestamps are re-bucketed
+    private MoodHistory withLateDay(byte[] newLevels, long[] newTimestamps, long[] newNoteRefs, int level, long day) {
+        int index = dayLowerBound(day);
+        boolean existing = index < dayTotal && days[index] == day;
+        int newTotal = existing ? dayTotal : dayTotal + 1;
+        int capacity = Math.max(days.length, newTotal);
+        long[] newDays = new long[capacity];
+        int[] newDaySum = new int[capacity];
+        int[] newDayCount = new int[capacity];
+        for (int from = 0, to = 0; from < dayTotal; from++, to++) {
+            if (!existing && from == index) {
+                to++;
+            }
+            newDays[to] = days[from];
+            newDaySum[to] = sumOfDay(from);
+            newDayCount[to] = countOfDay(from);
+        }
+        if (!existing) {
+            newDays[index] = day;
+        }
+        newDaySum[index] += level;
+        newDayCount[index]++;
+        return new MoodHistory(newLevels, newTimestamps, newNoteRefs, size + 1, newDays, newDaySum, newDayCount,
+                newTotal, newDaySum[newTotal - 1], newDayCount[newTotal - 1]);
+    }
+
+    // first row with timestamp >= value
+    private int lowerBound(long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // first row with timestamp > value
+    private int upperBound(long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int dayLowerBound(long day) {
+        int low = 0;
+        int high = dayTotal;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // epoch day 0 was a Thursday
+    private static long weekStart(long epochDay) {
+        return epochDay - Math.floorMod(epochDay + 3, 7L);
+    }
+}
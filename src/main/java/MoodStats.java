@@ -0,0 +1,152 @@
+import java.util.*;
+
+// Running mood aggregates, each update and read is O(1) whatever the history length.
+// Rolling windows keep one bucket per calendar day for the last 30 days.
+// Instances are immutable; add returns the next version, copying the small fixed buckets.
+class MoodStats {
+    private static final int WINDOW_DAYS = 30;
+    static final MoodStats EMPTY = new MoodStats();
+
+    private long count;
+    private long sum;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+    private double mean;
+    private double m2;
+
+    private final long[] bucketDay;
+    private final int[] bucketSum;
+    private final int[] bucketCount;
+
+    private long lastDay = Long.MIN_VALUE;
+    private int currentStreak;
+    private int longestStreak;
+
+    private MoodStats() {
+        bucketDay = new long[WINDOW_DAYS];
+        bucketSum = new int[WINDOW_DAYS];
+        bucketCount = new int[WINDOW_DAYS];
+        Arrays.fill(bucketDay, Long.MIN_VALUE);
+    }
+
+    private MoodStats(MoodStats previous) {
+        count = previous.count;
+        sum = previous.sum;
+        min = previous.min;
+        max = previous.max;
+        mean = previous.mean;
+        m2 = previous.m2;
+        bucketDay = previous.bucketDay.clone();
+        bucketSum = previous.bucketSum.clone();
+        bucketCount = previous.bucketCount.clone();
+        lastDay = previous.lastDay;
+        currentStreak = previous.currentStreak;
+        longestStreak = previous.longestStreak;
+    }
+
+    MoodStats add(int level, long timestamp) {
+        MoodStats next = new MoodStats(this);
+        next.accumulate(level, timestamp);
+        return next;
+    }
+
+    // only ever called on a version nobody else has seen yet
+    private void accumulate(int level, long timestamp) {
+        count++;
+        sum += level;
+        min = Math.min(min, level);
+        max = Math.max(max, level);
+        // Welford's update keeps the variance numerically stable
+        double delta = level - mean;
+        mean += delta / count;
+        m2 += delta * (level - mean);
+
+        long day = dayOf(timestamp);
+        int slot = (int) Math.floorMod(day, (long) WINDOW_DAYS);
+        if (bucketDay[slot] < day) {
+            bucketDay[slot] = day;
+            bucketSum[slot] = 0;
+            bucketCount[slot] = 0;
+        }
+        if (bucketDay[slot] == day) {
+            bucketSum[slot] += level;
+            bucketCount[slot]++;
+        }
+
+        if (lastDay == Long.MIN_VALUE || day > lastDay + 1) {
+            currentStreak = 1;
+        } else if (day == lastDay + 1) {
+            currentStreak++;
+        }
+        if (day >= lastDay) {
+            lastDay = day;
+        }
+        longestStreak = Math.max(longestStreak, currentStreak);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getAverage() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public int getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public int getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    public double getVariance() {
+        return count == 0 ? 0 : m2 / count;
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    // days is capped at 30, the window counts today plus the days before it
+    public int getWindowCount(int days, long now) {
+        int total = 0;
+        long today = dayOf(now);
+        for (int i = 0; i < WINDOW_DAYS; i++) {
+            if (inWindow(bucketDay[i], today, days)) {
+                total += bucketCount[i];
+            }
+        }
+        return total;
+    }
+
+    public double getWindowAverage(int days, long now) {
+        int total = 0;
+        int entries = 0;
+        long today = dayOf(now);
+        for (int i = 0; i < WINDOW_DAYS; i++) {
+            if (inWindow(bucketDay[i], today, days)) {
+                total += bucketSum[i];
+                entries += bucketCount[i];
+            }
+        }
+        return entries == 0 ? 0 : (double) total / entries;
+    }
+
+    // a streak survives until a full calendar day passes without an entry
+    public int getCurrentStreak(long now) {
+        return lastDay != Long.MIN_VALUE && dayOf(now) - lastDay <= 1 ? currentStreak : 0;
+    }
+
+    public int getLongestStreak() {
+        return longestStreak;
+    }
+
+    private static boolean inWindow(long day, long today, int days) {
+        return day != Long.MIN_VALUE && day <= today && today - day < Math.min(days, WINDOW_DAYS);
+    }
+
+    static long dayOf(long timestamp) {
+        return TimestampFormat.epochDay(timestamp);
+    }
+}
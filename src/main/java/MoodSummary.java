@@ -0,0 +1,33 @@
+import java.time.LocalDate;
+
+class MoodSummary {
+    private long epochDay;
+    private long sum;
+    private int count;
+
+    public MoodSummary(long epochDay, long sum, int count) {
+        this.epochDay = epochDay;
+        this.sum = sum;
+        this.count = count;
+    }
+
+    public long getEpochDay() {
+        return epochDay;
+    }
+
+    public LocalDate getStart() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getAverage() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// singleton
+// Append-only note text in memory-mapped chunks of a scratch file, addressed by offset.
+// The file is only a heap extension; the durable copy of every note lives in the storage log.
+// Writers reserve their bytes with a compare-and-set on the next offset and copy the note in
+// with no lock held, so mood writes for different users never meet here. Only mapping a new
+// chunk, once per CHUNK_BYTES, takes the store's monitor.
+class NoteStore {
+    private static final long EMPTY = -1;
+    private static final int CHUNK_BYTES = 64 << 20;
+
+    private final AtomicLong nextOffset = new AtomicLong();
+    // replaced, never changed, when a chunk is mapped; readers index it without locking
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private FileChannel channel;
+
+    private NoteStore() {
+    }
+
+    public static NoteStore getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final NoteStore INSTANCE = new NoteStore();
+    }
+
+    // returns a reference for load(); a note never straddles two chunks
+    public long store(String note) {
+        if (note == null || note.isEmpty()) {
+            return EMPTY;
+        }
+        byte[] bytes = note.getBytes(StandardCharsets.UTF_8);
+        int needed = 4 + bytes.length;
+        if (needed > CHUNK_BYTES) {
+            throw new IllegalArgumentException("Note too long: " + bytes.length + " bytes");
+        }
+        long reserved;
+        long offset;
+        do {
+            reserved = nextOffset.get();
+            offset = reserved;
+            int position = (int) (reserved % CHUNK_BYTES);
+            if (position + needed > CHUNK_BYTES) {
+                offset += CHUNK_BYTES - position;
+            }
+        } while (!nextOffset.compareAndSet(reserved, offset + needed));
+        MappedByteBuffer chunk = chunk((int) (offset / CHUNK_BYTES));
+        int position = (int) (offset % CHUNK_BYTES);
+        // absolute puts leave the buffer's position alone, so writers to disjoint ranges don't interfere
+        chunk.putInt(position, bytes.length);
+        chunk.put(position + 4, bytes);
+        return offset;
+    }
+
+    public String load(long ref) {
+        if (ref == EMPTY) {
+            return "";
+        }
+        MappedByteBuffer chunk = chunks[(int) (ref / CHUNK_BYTES)];
+        int position = (int) (ref % CHUNK_BYTES);
+        byte[] bytes = new byte[chunk.getInt(position)];
+        chunk.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // decodes the UTF-8 note into out without creating a String
+    public StringBuilder appendTo(long ref, StringBuilder out) {
+        if (ref == EMPTY) {
+            return out;
+        }
+        MappedByteBuffer chunk = chunks[(int) (ref / CHUNK_BYTES)];
+        int position = (int) (ref % CHUNK_BYTES) + 4;
+        int end = position + chunk.getInt(position - 4);
+        while (position < end) {
+            int b = chunk.get(position++);
+            if (b >= 0) {
+                out.append((char) b);
+            } else if ((b & 0xE0) == 0xC0) {
+                out.append((char) (((b & 0x1F) << 6) | (chunk.get(position++) & 0x3F)));
+            } else if ((b & 0xF0) == 0xE0) {
+                int c = ((b & 0x0F) << 12) | ((chunk.get(position++) & 0x3F) << 6);
+                out.append((char) (c | (chunk.get(position++) & 0x3F)));
+            } else {
+                int c = ((b & 0x07) << 18) | ((chunk.get(position++) & 0x3F) << 12);
+                c |= (chunk.get(position++) & 0x3F) << 6;
+                out.appendCodePoint(c | (chunk.get(position++) & 0x3F));
+            }
+        }
+        return out;
+    }
+
+    private MappedByteBuffer chunk(int index) {
+        MappedByteBuffer[] mapped = chunks;
+        return index < mapped.length ? mapped[index] : mapChunk(index);
+    }
+
+    private synchronized MappedByteBuffer mapChunk(int index) {
+        try {
+            if (channel == null) {
+                Path file = Files.createTempFile("mindwell-notes", ".dat");
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                try {
+                    // the open channel keeps the data reachable, nothing is left behind on exit
+                    Files.delete(file);
+                } catch (IOException e) {
+                    file.toFile().deleteOnExit();
+                }
+            }
+            MappedByteBuffer[] mapped = chunks;
+            if (mapped.length <= index) {
+                mapped = Arrays.copyOf(mapped, index + 1);
+                for (int i = chunks.length; i <= index; i++) {
+                    mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * CHUNK_BYTES, CHUNK_BYTES);
+                }
+                chunks = mapped;
+            }
+            return mapped[index];
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map note storage", e);
+        }
+    }
+}
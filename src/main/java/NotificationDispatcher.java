@@ -0,0 +1,140 @@
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// async observer fan-out: each topic is pinned to one worker so per-topic order is kept
+// and posts queued for the same topic collapse into one notification per subscriber
+class NotificationDispatcher {
+    private static final int MAX_BATCH = 256;
+    private static final Counter FAILED = Metrics.getInstance()
+            .counter("mindwell_notifications_failed_total", "Notifications a subscriber threw on");
+
+    private final Function<String, List<Observer>> subscribers;
+    private final List<BlockingQueue<PendingNotification>> queues;
+    private final LongAdder delivered;
+    private final LongAdder notificationsSent;
+    private final LongAdder lagNanosTotal;
+    private final AtomicLong maxLagNanos;
+
+    public NotificationDispatcher(int queueCapacity, int workerCount, Function<String, List<Observer>> subscribers) {
+        this.subscribers = subscribers;
+        this.queues = new ArrayList<>();
+        this.delivered = new LongAdder();
+        this.notificationsSent = new LongAdder();
+        this.lagNanosTotal = new LongAdder();
+        this.maxLagNanos = new AtomicLong();
+
+        int perWorkerCapacity = Math.max(1, queueCapacity / workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<PendingNotification> queue = new ArrayBlockingQueue<>(perWorkerCapacity);
+            queues.add(queue);
+            Thread worker = new Thread(() -> runWorker(queue), "notification-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    // blocks when the worker's queue is full, which throttles posters instead of growing without bound
+    public void submit(String topic, String message) {
+        BlockingQueue<PendingNotification> queue = queues.get(Math.floorMod(topic.hashCode(), queues.size()));
+        try {
+            queue.put(new PendingNotification(topic, message, System.nanoTime()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deliver(topic, message, 1);
+        }
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (BlockingQueue<PendingNotification> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    public long getDeliveredPostCount() {
+        return delivered.sum();
+    }
+
+    public long getNotificationsSent() {
+        return notificationsSent.sum();
+    }
+
+    public double getAverageLagMillis() {
+        long count = delivered.sum();
+        return count == 0 ? 0 : lagNanosTotal.sum() / (count * 1_000_000.0);
+    }
+
+    public double getMaxLagMillis() {
+        return maxLagNanos.get() / 1_000_000.0;
+    }
+
+    private void runWorker(BlockingQueue<PendingNotification> queue) {
+        List<PendingNotification> batch = new ArrayList<>(MAX_BATCH);
+        Map<String, TopicBatch> byTopic = new LinkedHashMap<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+
+            for (PendingNotification pending : batch) {
+                TopicBatch topicBatch = byTopic.computeIfAbsent(pending.topic, t -> new TopicBatch());
+                topicBatch.latestMessage = pending.message;
+                topicBatch.postCount++;
+            }
+            for (Map.Entry<String, TopicBatch> entry : byTopic.entrySet()) {
+                deliver(entry.getKey(), entry.getValue().latestMessage, entry.getValue().postCount);
+            }
+
+            long now = System.nanoTime();
+            for (PendingNotification pending : batch) {
+                long lag = now - pending.enqueuedAt;
+                lagNanosTotal.add(lag);
+                maxLagNanos.accumulateAndGet(lag, Math::max);
+            }
+            delivered.add(batch.size());
+            batch.clear();
+            byTopic.clear();
+        }
+    }
+
+    private void deliver(String topic, String latestMessage, int postCount) {
+        for (Observer observer : subscribers.apply(topic)) {
+            try {
+                if (postCount == 1) {
+                    observer.update(topic, latestMessage);
+                } else {
+                    observer.update(topic, latestMessage, postCount);
+                }
+                notificationsSent.increment();
+            } catch (RuntimeException e) {
+                // one broken subscriber must not stop delivery to the rest
+                FAILED.increment();
+            }
+        }
+    }
+
+    private static class PendingNotification {
+        final String topic;
+        final String message;
+        final long enqueuedAt;
+
+        PendingNotification(String topic, String message, long enqueuedAt) {
+            this.topic = topic;
+            this.message = message;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private static class TopicBatch {
+        String latestMessage;
+        int postCount;
+    }
+}
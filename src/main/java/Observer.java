@@ -0,0 +1,11 @@
+import java.util.*;
+
+//observer
+interface Observer {
+    void update(String topic, String message);
+
+    // several posts in one topic delivered as a single notification
+    default void update(String topic, String latestMessage, int postCount) {
+        update(topic, latestMessage);
+    }
+}
@@ -0,0 +1,96 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// PBKDF2-HMAC-SHA256 with a random 16-byte salt per password, stored as
+// "$pbkdf2-sha256$<iterations>$<salt>$<hash>" in unpadded base64. Hashes made with a
+// different iteration count still verify; needsRehash tells the caller to upgrade them.
+class PasswordHasher {
+    static final int DEFAULT_ITERATIONS = 310_000;
+
+    private static final String PREFIX = "$pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Counter MALFORMED_HASHES = Metrics.getInstance()
+            .counter("mindwell_password_hash_malformed_total", "Stored password hashes that could not be parsed");
+
+    private final int iterations;
+    private volatile String dummyHash;
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be positive: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    // made on first use; a racing second hash is harmless
+    String getDummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = hash("");
+            dummyHash = hash;
+        }
+        return hash;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + base64.encodeToString(salt) + "$"
+                + base64.encodeToString(derive(password, salt, iterations));
+    }
+
+    // constant-time in the hash; a legacy plain-text value is compared in constant time too.
+    // A malformed stored hash matches nothing, so one corrupt record can't break login.
+    public boolean verify(String password, String stored) {
+        if (!isHash(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        try {
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("expected 3 fields, found " + parts.length);
+            }
+            Base64.Decoder base64 = Base64.getDecoder();
+            byte[] expected = base64.decode(parts[2]);
+            return MessageDigest.isEqual(expected,
+                    derive(password, base64.decode(parts[1]), Integer.parseInt(parts[0])));
+        } catch (IllegalArgumentException e) {
+            // counted rather than logged: this is on every login's path
+            MALFORMED_HASHES.increment();
+            return false;
+        }
+    }
+
+    public boolean needsRehash(String stored) {
+        return !isHash(stored) || !stored.startsWith(PREFIX + iterations + "$");
+    }
+
+    static boolean isHash(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+// ASCII-only variant for terminals and screen readers that mangle symbols:
+// box lines become dashes, check marks become asterisks, other symbols are dropped
+class PlainTextDecorator extends ExerciseDecorator {
+    public PlainTextDecorator(Exercise exercise) {
+        super(exercise);
+    }
+
+    @Override
+    public String execute() {
+        String text = wrappedExercise.execute();
+        StringBuilder plain = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint < 0x80) {
+                plain.append((char) codePoint);
+            } else if (codePoint == '─') {
+                plain.append('-');
+            } else if (codePoint == '✓') {
+                plain.append('*');
+            } else if (i < text.length() && text.charAt(i) == ' ') {
+                i++;
+            }
+        }
+        // dropping a leading symbol can leave the line starting with a space
+        return plain.toString().replace("\n ", "\n").replaceFirst("^ ", "");
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Posts keyed by id in a skip list. Ids grow with time, so a page "older than cursor C"
+// is a seek plus a short walk, O(log N + pageSize), and posts that arrive while a
+// reader is paging land above the cursor without shifting anything below it.
+class PostFeed {
+    private final ConcurrentSkipListMap<Integer, CommunityPost> posts = new ConcurrentSkipListMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+
+    boolean add(CommunityPost post) {
+        if (posts.putIfAbsent(post.getId(), post) == null) {
+            count.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    boolean remove(CommunityPost post) {
+        if (posts.remove(post.getId(), post)) {
+            count.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    // oldest first, stopping at the first post at or after olderThanMillis
+    List<CommunityPost> oldest(int max, long olderThanMillis) {
+        List<CommunityPost> result = new ArrayList<>(Math.min(max, 1024));
+        for (CommunityPost post : posts.values()) {
+            if (result.size() == max || post.getTimestampMillis() >= olderThanMillis) {
+                break;
+            }
+            result.add(post);
+        }
+        return result;
+    }
+
+    int firstId() {
+        Map.Entry<Integer, CommunityPost> first = posts.firstEntry();
+        return first == null ? Integer.MAX_VALUE : first.getKey();
+    }
+
+    // the skip list's own size() walks every node
+    public int size() {
+        return count.get();
+    }
+
+    public Collection<CommunityPost> all() {
+        return Collections.unmodifiableCollection(posts.values());
+    }
+
+    public CommunityPost get(int id) {
+        return posts.get(id);
+    }
+
+    public FeedPage page(int beforeCursor, int limit) {
+        List<CommunityPost> page = new ArrayList<>(Math.min(limit, 64));
+        Iterator<CommunityPost> older = posts.headMap(beforeCursor, false).descendingMap().values().iterator();
+        while (page.size() < limit && older.hasNext()) {
+            page.add(older.next());
+        }
+        return new FeedPage(page, older.hasNext());
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// singleton
+// Runs every registered strategy that applies, in registration order, and remembers the
+// result on the user. The cached text is tagged with the user's data version and the
+// registry generation, so it is reused until new data arrives or the registry changes.
+class RecommendationEngine {
+    private final List<RecommendationStrategy> strategies = new CopyOnWriteArrayList<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private RecommendationEngine() {
+        register(new LowMoodStrategy());
+        register(new MediumMoodStrategy());
+        register(new HighMoodStrategy());
+        register(new DecliningTrendStrategy());
+        register(new VolatileMoodStrategy());
+        register(new UntriedExerciseStrategy());
+        register(new GoalStrategy());
+    }
+
+    public static RecommendationEngine getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final RecommendationEngine INSTANCE = new RecommendationEngine();
+    }
+
+    public void register(RecommendationStrategy strategy) {
+        strategies.add(strategy);
+        generation.incrementAndGet();
+    }
+
+    public String recommend(User user) {
+        // read the versions before the data so a racing update leaves the entry stale, not wrong
+        long version = user.getDataVersion();
+        int currentGeneration = generation.get();
+        User.CachedRecommendation cached = user.getCachedRecommendation();
+        if (cached != null && cached.version == version && cached.generation == currentGeneration) {
+            hits.increment();
+            return cached.text;
+        }
+        misses.increment();
+        String text = compute(user);
+        user.setCachedRecommendation(new User.CachedRecommendation(version, currentGeneration, text));
+        return text;
+    }
+
+    private String compute(User user) {
+        if (user.getMoodHistory().isEmpty()) {
+            return "Log your mood first to get personalized recommendations!";
+        }
+        MoodFeatures features = MoodFeatures.of(user);
+        StringBuilder text = new StringBuilder(256);
+        for (RecommendationStrategy strategy : strategies) {
+            if (strategy.appliesTo(features)) {
+                if (text.length() > 0) {
+                    text.append("\n\n");
+                }
+                text.append(strategy.getRecommendation(features));
+            }
+        }
+        return text.toString();
+    }
+
+    public long getCacheHits() {
+        return hits.sum();
+    }
+
+    public long getCacheMisses() {
+        return misses.sum();
+    }
+}
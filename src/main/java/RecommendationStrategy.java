@@ -0,0 +1,7 @@
+//strategy
+// Strategies are stateless and shared; everything they look at comes in through MoodFeatures.
+interface RecommendationStrategy {
+    boolean appliesTo(MoodFeatures features);
+
+    String getRecommendation(MoodFeatures features);
+}
@@ -0,0 +1,16 @@
+class RelaxationExercise extends Exercise {
+    public RelaxationExercise() {
+        this.name = "Progressive Relaxation";
+        this.description = "Release muscle tension";
+        this.duration = 15;
+    }
+
+    @Override
+    public String execute() {
+        return " Progressive Relaxation:\n" +
+                "1. Start with your toes, tense for 5 seconds\n" +
+                "2. Release and feel the relaxation\n" +
+                "3. Move up to calves, thighs, etc.\n" +
+                "4. Continue until you reach your head";
+    }
+}
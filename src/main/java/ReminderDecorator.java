@@ -0,0 +1,11 @@
+class ReminderDecorator extends ExerciseDecorator {
+    public ReminderDecorator(Exercise exercise) {
+        super(exercise);
+    }
+
+    @Override
+    public String execute() {
+        return " Reminder: Take your time and breathe\n" +
+                wrappedExercise.execute();
+    }
+}
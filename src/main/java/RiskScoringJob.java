@@ -0,0 +1,236 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.time.LocalDate;
+
+//batch
+// Scores every user's recent mood days for sustained lows and writes a ranked outreach list.
+// Users are split into fixed partitions by username hash and the partitions run in parallel.
+// Each one writes its rows to a temp file that is renamed into place when complete, so a
+// rerun for the same day skips the finished partitions and only redoes the rest.
+// Scores depend only on the logged data up to the as-of day, and rows are sorted by
+// (points desc, username), so the same data always produces byte-identical files.
+// Recommendations read the users' current state, not the as-of window, so they go to a
+// separate recommendations.tsv that every run rewrites for the outreach list.
+class RiskScoringJob {
+    static final int WINDOW_DAYS = 14;
+    // a user is put on the outreach list at this many points, e.g. three low days in a row
+    static final int FLAG_POINTS = 30;
+
+    private static final Comparator<String[]> RANKING = Comparator
+            .comparingInt((String[] row) -> -Integer.parseInt(row[0]))
+            .thenComparing(row -> row[5]);
+
+    private final Path directory;
+    private final long asOfDay;
+    private final int partitions;
+    private final int parallelism;
+    private final int outreachLimit;
+
+    public RiskScoringJob(Path outputRoot, long asOfDay, int partitions, int parallelism, int outreachLimit) {
+        this.directory = outputRoot.resolve(LocalDate.ofEpochDay(asOfDay) + "-p" + partitions);
+        this.asOfDay = asOfDay;
+        this.partitions = partitions;
+        this.parallelism = parallelism;
+        this.outreachLimit = outreachLimit;
+    }
+
+    public Summary run() throws IOException {
+        Files.createDirectories(directory);
+        List<List<User>> buckets = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (User user : UserManager.getInstance().getUsers()) {
+            buckets.get(Math.floorMod(user.getUsername().hashCode(), partitions)).add(user);
+        }
+
+        AtomicLong scored = new AtomicLong();
+        AtomicInteger resumed = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, partitions).parallel().forEach(partition -> {
+                if (Files.exists(partitionFile(partition))) {
+                    resumed.incrementAndGet();
+                } else {
+                    scored.addAndGet(scorePartition(partition, buckets.get(partition)));
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Risk scoring interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Risk scoring failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        List<String[]> flagged = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            for (String line : Files.readAllLines(partitionFile(partition), StandardCharsets.UTF_8)) {
+                flagged.add(line.split("\t", 6));
+            }
+        }
+        flagged.sort(RANKING);
+        List<String> outreach = new ArrayList<>();
+        outreach.add("points\tlowStreak\tlowDays\taverage\tslope\tusername");
+        // as of this run, so outreach has them after this process exits
+        RecommendationEngine engine = RecommendationEngine.getInstance();
+        UserManager users = UserManager.getInstance();
+        List<String> recommendations = new ArrayList<>();
+        recommendations.add("username\trecommendation");
+        for (String[] row : flagged.subList(0, Math.min(outreachLimit, flagged.size()))) {
+            outreach.add(String.join("\t", row));
+            User user = users.getUser(row[5]);
+            if (user != null) {
+                recommendations.add(row[5] + "\t" + escape(engine.recommend(user)));
+            }
+        }
+        Path outreachFile = directory.resolve("outreach.tsv");
+        writeAtomically(outreachFile, outreach);
+        Path recommendationsFile = directory.resolve("recommendations.tsv");
+        writeAtomically(recommendationsFile, recommendations);
+        return new Summary(scored.get(), flagged.size(), resumed.get(), outreachFile, recommendationsFile);
+    }
+
+    // runs on a pool thread; the per-day scratch arrays are reused for every user in the partition
+    private long scorePartition(int partition, List<User> users) {
+        long[] days = new long[WINDOW_DAYS];
+        int[] sums = new int[WINDOW_DAYS];
+        int[] counts = new int[WINDOW_DAYS];
+        List<String[]> rows = new ArrayList<>();
+        for (User user : users) {
+            String[] row = score(user, days, sums, counts);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        rows.sort(RANKING);
+        List<String> lines = new ArrayList<>(rows.size());
+        for (String[] row : rows) {
+            lines.add(String.join("\t", row));
+        }
+        try {
+            writeAtomically(partitionFile(partition), lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return users.size();
+    }
+
+    // null unless the user reaches FLAG_POINTS; a low day averages 3 or less
+    String[] score(User user, long[] days, int[] sums, int[] counts) {
+        int n = user.getMoodHistory().copyDays(asOfDay - WINDOW_DAYS + 1, asOfDay + 1, days, sums, counts);
+        if (n == 0) {
+            return null;
+        }
+        int lowDays = 0;
+        long total = 0;
+        long entries = 0;
+        for (int i = 0; i < n; i++) {
+            if (sums[i] <= 3 * counts[i]) {
+                lowDays++;
+            }
+            total += sums[i];
+            entries += counts[i];
+        }
+        // logged days in a row, most recent first, that were all low
+        int lowStreak = 0;
+        while (lowStreak < n && sums[n - 1 - lowStreak] <= 3 * counts[n - 1 - lowStreak]) {
+            lowStreak++;
+        }
+        double average = (double) total / entries;
+
+        // least-squares slope of the daily averages, in mood points per day
+        double slope = 0;
+        if (n > 1) {
+            double meanX = 0;
+            double meanY = 0;
+            for (int i = 0; i < n; i++) {
+                meanX += days[i];
+                meanY += (double) sums[i] / counts[i];
+            }
+            meanX /= n;
+            meanY /= n;
+            double covariance = 0;
+            double varianceX = 0;
+            for (int i = 0; i < n; i++) {
+                double dx = days[i] - meanX;
+                covariance += dx * ((double) sums[i] / counts[i] - meanY);
+                varianceX += dx * dx;
+            }
+            slope = covariance / varianceX;
+        }
+
+        int points = 10 * lowStreak + 5 * lowDays
+                + (int) Math.round(10 * Math.max(0, 5 - average))
+                + (int) Math.round(20 * Math.max(0, -slope));
+        if (points < FLAG_POINTS) {
+            return null;
+        }
+        return new String[]{
+                Integer.toString(points), Integer.toString(lowStreak), Integer.toString(lowDays),
+                String.format(Locale.ROOT, "%.1f", average), String.format(Locale.ROOT, "%.2f", slope),
+                user.getUsername()};
+    }
+
+    // one TSV field: backslashes, tabs and line breaks are escaped
+    static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private Path partitionFile(int partition) {
+        return directory.resolve(String.format("part-%05d.tsv", partition));
+    }
+
+    private static void writeAtomically(Path target, List<String> lines) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static final class Summary {
+        private final long usersScored;
+        private final int usersFlagged;
+        private final int partitionsResumed;
+        private final Path outreachFile;
+        private final Path recommendationsFile;
+
+        Summary(long usersScored, int usersFlagged, int partitionsResumed, Path outreachFile, Path recommendationsFile) {
+            this.usersScored = usersScored;
+            this.usersFlagged = usersFlagged;
+            this.partitionsResumed = partitionsResumed;
+            this.outreachFile = outreachFile;
+            this.recommendationsFile = recommendationsFile;
+        }
+
+        public long getUsersScored() {
+            return usersScored;
+        }
+
+        public int getUsersFlagged() {
+            return usersFlagged;
+        }
+
+        public int getPartitionsResumed() {
+            return partitionsResumed;
+        }
+
+        public Path getOutreachFile() {
+            return outreachFile;
+        }
+
+        public Path getRecommendationsFile() {
+            return recommendationsFile;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// singleton
+// In-process inverted index over post messages and mood notes.
+// Terms sit in a sorted map, so a prefix query is a range scan over neighbouring keys.
+// Every key starts with a namespace: posts share one, each user's mood notes get their
+// own, so a note can only ever match a search made by its owner.
+// Postings are packed into a byte[] per term as zigzag-varint id deltas followed by the
+// term frequency, a few bytes per posting and no objects.
+class SearchIndex {
+    static final long MINUTE_MILLIS = 60_000L;
+
+    private static final String POSTS = "p\u0000";
+    private static final int MAX_PREFIX_TERMS = 64;
+
+    private final ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+    private final AtomicInteger postCount = new AtomicInteger();
+    private final ConcurrentMap<String, AtomicInteger> noteCounts = new ConcurrentHashMap<>();
+
+    private SearchIndex() {
+    }
+
+    public static SearchIndex getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final SearchIndex INSTANCE = new SearchIndex();
+    }
+
+    public void indexPost(int postId, String message) {
+        postCount.incrementAndGet();
+        index(POSTS, postId, message);
+    }
+
+    // notes are addressed by their minute; the owner re-checks entries in that minute
+    public void indexMoodNote(String username, long timestamp, String note) {
+        if (note == null || note.isEmpty()) {
+            return;
+        }
+        noteCounts.computeIfAbsent(username, u -> new AtomicInteger()).incrementAndGet();
+        index(notesNamespace(username), (int) Math.floorDiv(timestamp, MINUTE_MILLIS), note);
+    }
+
+    public int[] searchPosts(String query, int limit) {
+        return search(POSTS, query, limit, postCount.get());
+    }
+
+    public long[] searchMoodNotes(String username, String query, int limit) {
+        AtomicInteger notes = noteCounts.get(username);
+        int[] minutes = search(notesNamespace(username), query, limit, notes == null ? 0 : notes.get());
+        long[] result = new long[minutes.length];
+        for (int i = 0; i < minutes.length; i++) {
+            result[i] = minutes[i];
+        }
+        return result;
+    }
+
+    // same tokenizer and prefix rules as the index, for re-checking a candidate text
+    static boolean matches(String text, String query) {
+        List<String> words = tokenize(text);
+        query = query.toLowerCase(Locale.ROOT);
+        for (String token : tokenize(query)) {
+            boolean prefix = query.contains(token + "*");
+            for (String word : words) {
+                if (prefix ? word.startsWith(token) : word.equals(token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void index(String namespace, int docId, String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            terms.computeIfAbsent(namespace + entry.getKey(), t -> new Postings()).add(docId, entry.getValue());
+        }
+    }
+
+    // OR of the query terms scored with a BM25-style tf saturation times idf;
+    // returns up to limit doc ids, best first, newer ids winning ties
+    private int[] search(String namespace, String query, int limit, int documentCount) {
+        ScoreTable scores = new ScoreTable();
+        query = query.toLowerCase(Locale.ROOT);
+        for (String token : tokenize(query)) {
+            boolean prefix = query.contains(token + "*");
+            Collection<Postings> matched;
+            if (prefix) {
+                matched = prefixTerms(namespace + token);
+            } else {
+                Postings postings = terms.get(namespace + token);
+                matched = postings == null ? Collections.emptyList() : Collections.singletonList(postings);
+            }
+            for (Postings postings : matched) {
+                postings.score(scores, Math.log(1 + (double) documentCount / Math.max(1, postings.documents())));
+            }
+        }
+        return scores.top(limit);
+    }
+
+    // The MAX_PREFIX_TERMS most selective expansions, those in the fewest documents: they
+    // carry the highest idf, so they decide the ranking, and they are the cheapest to score.
+    private Collection<Postings> prefixTerms(String prefix) {
+        PriorityQueue<Postings> selective = new PriorityQueue<>(MAX_PREFIX_TERMS + 1,
+                Comparator.comparingInt(Postings::documents).reversed());
+        for (Postings postings : terms.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            selective.add(postings);
+            if (selective.size() > MAX_PREFIX_TERMS) {
+                selective.poll();
+            }
+        }
+        return selective;
+    }
+
+    private static String notesNamespace(String username) {
+        return "m\u0000" + username + "\u0000";
+    }
+
+    // lower-cased runs of letters and digits
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // one term's postings; appends lock, readers take the published (bytes, length) pair
+    private static class Postings {
+        private volatile byte[] bytes = new byte[8];
+        private volatile int length;
+        private int lastDocId;
+        private int documents;
+
+        synchronized void add(int docId, int frequency) {
+            byte[] current = bytes;
+            if (current.length - length < 10) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            int delta = docId - lastDocId;
+            int position = writeVarint(current, length, (delta << 1) ^ (delta >> 31));
+            position = writeVarint(current, position, frequency);
+            lastDocId = docId;
+            documents++;
+            bytes = current;
+            length = position;
+        }
+
+        synchronized int documents() {
+            return documents;
+        }
+
+        void score(ScoreTable scores, double idf) {
+            int end = length;
+            byte[] data = bytes;
+            int position = 0;
+            int docId = 0;
+            while (position < end) {
+                int zigzag = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    zigzag |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                docId += (zigzag >>> 1) ^ -(zigzag & 1);
+                int frequency = 0;
+                shift = 0;
+                do {
+                    b = data[position++];
+                    frequency |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                scores.add(docId, idf * frequency / (frequency + 1.2));
+            }
+        }
+
+        private static int writeVarint(byte[] target, int position, int value) {
+            while ((value & ~0x7F) != 0) {
+                target[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            target[position++] = (byte) value;
+            return position;
+        }
+    }
+
+    // Per-query score accumulators: doc ids and scores in parallel primitive arrays, open
+    // addressing with linear probing, so a term in millions of documents boxes nothing.
+    private static class ScoreTable {
+        private static final int EMPTY = Integer.MIN_VALUE;
+
+        private int[] ids = newIds(1 << 10);
+        private double[] scores = new double[1 << 10];
+        private int size;
+
+        private static int[] newIds(int capacity) {
+            int[] ids = new int[capacity];
+            Arrays.fill(ids, EMPTY);
+            return ids;
+        }
+
+        void add(int docId, double score) {
+            int mask = ids.length - 1;
+            int slot = (docId * 0x9E3779B9) >>> 1 & mask;
+            while (ids[slot] != EMPTY && ids[slot] != docId) {
+                slot = (slot + 1) & mask;
+            }
+            if (ids[slot] == EMPTY) {
+                ids[slot] = docId;
+                if (++size > ids.length >> 1) {
+                    scores[slot] = score;
+                    grow();
+                    return;
+                }
+            }
+            scores[slot] += score;
+        }
+
+        private void grow() {
+            int[] oldIds = ids;
+            double[] oldScores = scores;
+            ids = newIds(oldIds.length << 1);
+            scores = new double[oldIds.length << 1];
+            int mask = ids.length - 1;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != EMPTY) {
+                    int slot = (oldIds[i] * 0x9E3779B9) >>> 1 & mask;
+                    while (ids[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    ids[slot] = oldIds[i];
+                    scores[slot] = oldScores[i];
+                }
+            }
+        }
+
+        // a min-heap of at most limit slots, worst on top, so the rest are dropped in one pass
+        int[] top(int limit) {
+            if (limit <= 0 || size == 0) {
+                return new int[0];
+            }
+            int[] heap = new int[Math.min(limit, size)];
+            int count = 0;
+            for (int slot = 0; slot < ids.length; slot++) {
+                if (ids[slot] == EMPTY) {
+                    continue;
+                }
+                if (count < heap.length) {
+                    heap[count] = slot;
+                    siftUp(heap, count++);
+                } else if (better(slot, heap[0])) {
+                    heap[0] = slot;
+                    siftDown(heap, count);
+                }
+            }
+            int[] result = new int[count];
+            for (int i = count - 1; i >= 0; i--) {
+                result[i] = ids[heap[0]];
+                heap[0] = heap[i];
+                siftDown(heap, i);
+            }
+            return result;
+        }
+
+        private boolean better(int a, int b) {
+            int byScore = Double.compare(scores[a], scores[b]);
+            return byScore != 0 ? byScore > 0 : ids[a] > ids[b];
+        }
+
+        private void siftUp(int[] heap, int i) {
+            while (i > 0 && better(heap[(i - 1) >> 1], heap[i])) {
+                int parent = (i - 1) >> 1;
+                int swap = heap[parent];
+                heap[parent] = heap[i];
+                heap[i] = swap;
+                i = parent;
+            }
+        }
+
+        private void siftDown(int[] heap, int count) {
+            int i = 0;
+            while (true) {
+                int worst = i;
+                int left = 2 * i + 1;
+                if (left < count && better(heap[worst], heap[left])) {
+                    worst = left;
+                }
+                if (left + 1 < count && better(heap[worst], heap[left + 1])) {
+                    worst = left + 1;
+                }
+                if (worst == i) {
+                    return;
+                }
+                int swap = heap[worst];
+                heap[worst] = heap[i];
+                heap[i] = swap;
+                i = worst;
+            }
+        }
+    }
+}
@@ -0,0 +1,720 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+// One conversation with the app: the menu flows plus the state that used to be global
+// (input, output, current user). The console and every network connection get their own.
+class Session {
+    private static final int PAGE_SIZE = 10;
+    private static final int SEARCH_RESULTS = 10;
+
+    private UserManager userManager;
+    private ExerciseManager exerciseManager;
+    private CommunityManager communityManager;
+    private SessionTokens sessionTokens;
+    private Scanner scanner;
+    private PrintWriter out;
+    // re-resolved from the token before every menu, so an expired or revoked token logs out
+    private User currentUser;
+    private String sessionToken;
+    private boolean open;
+    // notifications wait here and are shown between menus so they never cut into a prompt
+    private final Queue<String> notifications = new ConcurrentLinkedQueue<>();
+    private final Consumer<String> notificationListener = notifications::add;
+    // reused for every rendered history or feed line
+    private final StringBuilder line = new StringBuilder(256);
+    private char[] lineChars = new char[256];
+
+    public Session(Scanner scanner, PrintWriter out) {
+        this.userManager = UserManager.getInstance();
+        this.exerciseManager = ExerciseManager.getInstance();
+        this.communityManager = CommunityManager.getInstance();
+        this.sessionTokens = SessionTokens.getInstance();
+        this.scanner = scanner;
+        this.out = out;
+    }
+
+    // returns when the user exits or the input ends
+    public void run() {
+        out.println("╔═══════════════════════════════════╗");
+        out.println("║     Welcome to MindWell App       ║");
+        out.println("║  Your Mental Health Companion     ║");
+        out.println("╚═══════════════════════════════════╝");
+
+        open = true;
+        try {
+            while (open) {
+                if (currentUser == null) {
+                    showLoginMenu();
+                } else if (refreshSession()) {
+                    showNotifications();
+                    showMainMenu();
+                }
+            }
+        } catch (InputClosed e) {
+            // the client hung up
+        } catch (RuntimeException e) {
+            // anything else is a fault below the menus: tell the user, keep the cause
+            System.err.println("Session failed: " + e);
+            out.println("\nSomething went wrong: " + e.getMessage());
+        } finally {
+            detach();
+            out.flush();
+        }
+    }
+
+    private int readInt() {
+        try {
+            return Integer.parseInt(readLine().trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String readLine() {
+        out.flush();
+        if (!scanner.hasNextLine()) {
+            throw new InputClosed();
+        }
+        return scanner.nextLine();
+    }
+
+    // thrown by readLine at end of input and caught by run; not a failure, so no stack trace
+    private static final class InputClosed extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        InputClosed() {
+            super(null, null, false, false);
+        }
+    }
+
+    // PrintWriter.println(CharSequence) would build a String; copy through a reused char[] instead
+    private void printLine(StringBuilder text) {
+        if (lineChars.length < text.length()) {
+            lineChars = new char[Math.max(text.length(), lineChars.length * 2)];
+        }
+        text.getChars(0, text.length(), lineChars, 0);
+        out.write(lineChars, 0, text.length());
+        out.println();
+    }
+
+    private void showNotifications() {
+        String notification;
+        while ((notification = notifications.poll()) != null) {
+            out.println("\n " + notification);
+        }
+    }
+
+    private boolean refreshSession() {
+        if (sessionTokens.resolve(sessionToken) == currentUser) {
+            return true;
+        }
+        detach();
+        out.println("\nYour session has expired. Please log in again.");
+        return false;
+    }
+
+    private void attach(User user, String token) {
+        currentUser = user;
+        sessionToken = token;
+        user.setNotificationListener(notificationListener);
+    }
+
+    private void logout() {
+        sessionTokens.revoke(sessionToken);
+        detach();
+    }
+
+    // leaves the token valid, so a dropped connection can be resumed from another one
+    private void detach() {
+        if (currentUser != null) {
+            currentUser.removeNotificationListener(notificationListener);
+            currentUser = null;
+        }
+        sessionToken = null;
+        notifications.clear();
+    }
+
+    private void showLoginMenu() {
+        out.println("\n1. Register");
+        out.println("2. Login");
+        out.println("3. Resume Session");
+        out.println("4. Exit");
+        out.print("Choose: ");
+
+        int choice = readInt();
+
+        switch (choice) {
+            case 1:
+                register();
+                break;
+            case 2:
+                login();
+                break;
+            case 3:
+                resumeSession();
+                break;
+            case 4:
+                out.println("Take care of yourself! Goodbye.");
+                open = false;
+                break;
+        }
+    }
+
+    private void register() {
+        out.print("Username: ");
+        String username = readLine();
+        out.print("Password: ");
+        String password = readLine();
+
+        try {
+            if (userManager.register(username, password)) {
+                out.println("✓ Registration successful! Welcome to MindWell.");
+            } else {
+                out.println("✗ Username already exists!");
+            }
+        } catch (RejectedExecutionException e) {
+            out.println("✗ We're very busy right now, please try again in a moment.");
+        }
+    }
+
+    private void login() {
+        out.print("Username: ");
+        String username = readLine();
+        out.print("Password: ");
+        String password = readLine();
+
+        User user;
+        try {
+            user = userManager.login(username, password);
+        } catch (RejectedExecutionException e) {
+            out.println("✗ We're very busy right now, please try again in a moment.");
+            return;
+        }
+        if (user != null) {
+            String token = sessionTokens.issue(user);
+            attach(user, token);
+            out.println("✓ Welcome back, " + username + "!");
+            out.println("Session token (resumes this login without your password): " + token);
+        } else {
+            out.println("✗ Invalid credentials!");
+        }
+    }
+
+    // no password check: the token alone identifies the session
+    private void resumeSession() {
+        out.print("Session token: ");
+        String token = readLine().trim();
+
+        User user = sessionTokens.resolve(token);
+        if (user != null) {
+            attach(user, token);
+            out.println("✓ Welcome back, " + user.getUsername() + "!");
+        } else {
+            out.println("✗ That session has expired or does not exist.");
+        }
+    }
+
+    private void showMainMenu() {
+        out.println("\n╔═══════════ MAIN MENU ═══════════╗");
+        out.println("║ 1. Mood Diary                   ║");
+        out.println("║ 2. Exercises & Meditation       ║");
+        out.println("║ 3. Community Support            ║");
+        out.println("║ 4. My Progress & Stats          ║");
+        out.println("║ 5. Settings & Goals             ║");
+        out.println("║ 6. Logout                       ║");
+        out.println("╚═════════════════════════════════╝");
+        out.print("Choose: ");
+
+        int choice = readInt();
+
+        switch (choice) {
+            case 1:
+                moodDiaryMenu();
+                break;
+            case 2:
+                exercisesMenu();
+                break;
+            case 3:
+                communityMenu();
+                break;
+            case 4:
+                showProgress();
+                break;
+            case 5:
+                settingsMenu();
+                break;
+            case 6:
+                logout();
+                out.println("Logged out. See you soon!");
+                break;
+        }
+    }
+
+    private void moodDiaryMenu() {
+        out.println("\n=== Mood Diary ===");
+        out.println("1. Log Today's Mood");
+        out.println("2. View Mood History");
+        out.println("3. Get Recommendations");
+        out.println("4. Mood Trends");
+        out.println("5. Search My Notes");
+        out.println("6. Back");
+        out.print("Choose: ");
+
+        int choice = readInt();
+
+        switch (choice) {
+            case 1:
+                logMood();
+                break;
+            case 2:
+                viewMoodHistory();
+                break;
+            case 3:
+                getRecommendations();
+                break;
+            case 4:
+                viewMoodTrends();
+                break;
+            case 5:
+                searchMoodNotes();
+                break;
+        }
+    }
+
+    private void searchMoodNotes() {
+        out.print("Search your notes (end a word with * to match its prefix): ");
+        String query = readLine();
+        List<MoodEntry> results = currentUser.searchMoodNotes(query, SEARCH_RESULTS);
+        if (results.isEmpty()) {
+            out.println("No matching notes.");
+            return;
+        }
+        for (MoodEntry entry : results) {
+            line.setLength(0);
+            printLine(entry.appendTo(line));
+        }
+    }
+
+    private void logMood() {
+        out.print("Rate your mood (1-10): ");
+        int moodLevel = readInt();
+
+        if (moodLevel < 1 || moodLevel > 10) {
+            out.println("Please enter a number between 1 and 10.");
+            return;
+        }
+
+        out.print("Any notes about today? ");
+        String note = readLine();
+
+        MoodEntry entry = new MoodEntry(moodLevel, note);
+        currentUser.addMoodEntry(entry);
+
+        out.println("✓ Mood logged successfully!");
+
+        if (moodLevel <= 3) {
+            out.println("\n⚠ We noticed you're feeling low. Would you like some support?");
+            out.println("Consider trying a relaxation exercise or reaching out to the community.");
+        }
+    }
+
+    private void viewMoodHistory() {
+        out.println("\n=== Your Mood History ===");
+        MoodHistory history = currentUser.getMoodHistory();
+
+        if (history.isEmpty()) {
+            out.println("No mood entries yet. Start tracking today!");
+            return;
+        }
+
+        for (int i = 0; i < history.size(); i++) {
+            line.setLength(0);
+            printLine(history.appendEntry(i, line));
+        }
+
+        double avg = currentUser.getMoodStats().getAverage();
+        out.println("\nAverage mood: " + String.format("%.1f", avg) + "/10");
+    }
+
+    private void viewMoodTrends() {
+        out.println("\n=== Mood Trends ===");
+        MoodHistory history = currentUser.getMoodHistory();
+        if (history.isEmpty()) {
+            out.println("No mood entries yet. Start tracking today!");
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        out.println("Last 14 days:");
+        for (MoodSummary day : history.dailyAverages(now - 13 * MoodHistory.DAY_MILLIS, now + 1)) {
+            out.println("  " + day.getStart() + "  " + String.format("%.1f", day.getAverage())
+                    + "/10 (" + day.getCount() + ")");
+        }
+        out.println("Last 8 weeks:");
+        for (MoodSummary week : history.weeklyAverages(now - 55 * MoodHistory.DAY_MILLIS, now + 1)) {
+            out.println("  week of " + week.getStart() + "  " + String.format("%.1f", week.getAverage())
+                    + "/10 (" + week.getCount() + ")");
+        }
+    }
+
+    private void getRecommendations() {
+        out.println("\n" + RecommendationEngine.getInstance().recommend(currentUser));
+    }
+
+    private void exercisesMenu() {
+        out.println("\n=== Exercises & Meditation ===");
+        out.println("1. Browse Exercises");
+        out.println("2. Start Exercise");
+        out.println("3. My Completed Exercises");
+        out.println("4. Back");
+        out.print("Choose: ");
+
+        int choice = readInt();
+
+        switch (choice) {
+            case 1:
+                browseExercises();
+                break;
+            case 2:
+                startExercise();
+                break;
+            case 3:
+                viewCompletedExercises();
+                break;
+        }
+    }
+
+    private void browseExercises() {
+        out.println("\n=== Available Exercises ===");
+        List<Exercise> exercises = exerciseManager.getAllExercises();
+
+        for (int i = 0; i < exercises.size(); i++) {
+            Exercise ex = exercises.get(i);
+            out.println((i + 1) + ". " + ex.getName() + " (" + ex.getDuration() + " min)");
+            out.println("   " + ex.getDescription());
+        }
+    }
+
+    private void startExercise() {
+        List<Exercise> exercises = exerciseManager.getAllExercises();
+        out.println("\nSelect exercise:");
+
+        for (int i = 0; i < exercises.size(); i++) {
+            out.println((i + 1) + ". " + exercises.get(i).getName());
+        }
+
+        out.print("Choose (0 to cancel): ");
+        int choice = readInt();
+
+        if (choice > 0 && choice <= exercises.size()) {
+            Exercise exercise = exercises.get(choice - 1);
+
+            // decorator chains are rendered once per exercise and style, this is a lookup
+            char[] rendered = ExerciseRenderer.getInstance().render(exercise, currentUser.getExerciseStyle());
+            out.println();
+            out.write(rendered);
+            out.println();
+            currentUser.completeExercise(exercise, System.currentTimeMillis());
+            out.println("\n✓ Exercise completed! Great job!");
+        }
+    }
+
+    private void viewCompletedExercises() {
+        out.println("\n=== Your Completed Exercises ===");
+        CompletionLog completions = currentUser.getCompletions();
+
+        if (completions.size() == 0) {
+            out.println("No exercises completed yet. Start your first one!");
+            return;
+        }
+
+        for (Exercise exercise : exerciseManager.getAllExercises()) {
+            int count = completions.countOf(exercise.getId());
+            if (count > 0) {
+                out.println("- " + exercise.getName() + ": " + count + " times, "
+                        + completions.minutesOf(exercise.getId()) + " min");
+            }
+        }
+        out.println("Total: " + completions.getTotalMinutes() + " min");
+    }
+
+    private void communityMenu() {
+        out.println("\n=== Community Support ===");
+        out.println("1. View Topics");
+        out.println("2. Post Message");
+        out.println("3. My Messages");
+        out.println("4. Subscribe to Topic");
+        out.println("5. Read Topic");
+        out.println("6. Search Posts");
+        out.println("7. Back");
+        out.print("Choose: ");
+
+        int choice = readInt();
+
+        switch (choice) {
+            case 1:
+                viewTopics();
+                break;
+            case 2:
+                postMessage();
+                break;
+            case 3:
+                viewMyMessages();
+                break;
+            case 4:
+                subscribeToTopic();
+                break;
+            case 5:
+                readTopic();
+                break;
+            case 6:
+                searchPosts();
+                break;
+        }
+    }
+
+    private void searchPosts() {
+        out.print("Search posts (end a word with * to match its prefix): ");
+        String query = readLine();
+        List<CommunityPost> results = communityManager.searchPosts(query, SEARCH_RESULTS);
+        if (results.isEmpty()) {
+            out.println("No matching posts.");
+            return;
+        }
+        for (CommunityPost post : results) {
+            line.setLength(0);
+            printLine(post.appendTo(line));
+        }
+    }
+
+    private void viewTopics() {
+        out.println("\n=== Community Topics ===");
+        List<String> topics = communityManager.getTopics();
+
+        for (String topic : topics) {
+            out.println("- " + topic);
+            out.println("  (" + communityManager.getPostCount(topic) + " posts)");
+        }
+    }
+
+    private void postMessage() {
+        out.println("\nAvailable topics:");
+        List<String> topics = communityManager.getTopics();
+
+        for (int i = 0; i < topics.size(); i++) {
+            out.println((i + 1) + ". " + topics.get(i));
+        }
+
+        out.print("Select topic: ");
+        int topicIdx = readInt();
+
+        if (topicIdx < 1 || topicIdx > topics.size()) {
+            out.println("Invalid topic.");
+            return;
+        }
+
+        String topic = topics.get(topicIdx - 1);
+        out.print("Your message: ");
+        String message = readLine();
+
+        communityManager.addPost(currentUser, topic, message);
+        out.println("✓ Message posted!");
+    }
+
+    private void viewMyMessages() {
+        out.println("\n=== Your Posts ===");
+        FeedPage page = communityManager.getUserPage(currentUser, FeedPage.FIRST, PAGE_SIZE);
+
+        if (page.getPosts().isEmpty()) {
+            out.println("You haven't posted yet.");
+            return;
+        }
+
+        while (showPage(page)) {
+            page = communityManager.getUserPage(currentUser, page.getNextCursor(), PAGE_SIZE);
+        }
+    }
+
+    private void readTopic() {
+        out.println("\nAvailable topics:");
+        List<String> topics = communityManager.getTopics();
+
+        for (int i = 0; i < topics.size(); i++) {
+            out.println((i + 1) + ". " + topics.get(i));
+        }
+
+        out.print("Select topic: ");
+        int topicIdx = readInt();
+
+        if (topicIdx < 1 || topicIdx > topics.size()) {
+            out.println("Invalid topic.");
+            return;
+        }
+
+        String topic = topics.get(topicIdx - 1);
+        out.println("\n=== " + topic + " ===");
+        FeedPage page = communityManager.getTopicPage(topic, FeedPage.FIRST, PAGE_SIZE);
+        if (page.getPosts().isEmpty()) {
+            out.println("No posts yet. Be the first!");
+            return;
+        }
+
+        while (showPage(page)) {
+            page = communityManager.getTopicPage(topic, page.getNextCursor(), PAGE_SIZE);
+        }
+    }
+
+    // prints one page, newest first; true if the user wants the next one
+    private boolean showPage(FeedPage page) {
+        for (CommunityPost post : page.getPosts()) {
+            line.setLength(0);
+            printLine(post.appendTo(line));
+        }
+        if (!page.hasMore()) {
+            return false;
+        }
+        out.print("Show older posts? (y/n): ");
+        return readLine().trim().equalsIgnoreCase("y");
+    }
+
+    private void subscribeToTopic() {
+        out.println("\nAvailable topics:");
+        List<String> topics = communityManager.getTopics();
+
+        for (int i = 0; i < topics.size(); i++) {
+            out.println((i + 1) + ". " + topics.get(i));
+        }
+
+        out.print("Select topic to subscribe: ");
+        int topicIdx = readInt();
+
+        if (topicIdx < 1 || topicIdx > topics.size()) {
+            out.println("Invalid topic.");
+            return;
+        }
+
+        String topic = topics.get(topicIdx - 1);
+        communityManager.subscribe(topic, currentUser);
+        out.println("✓ Subscribed to: " + topic);
+    }
+
+    private void showProgress() {
+        out.println("\n╔═══════════ YOUR PROGRESS ═══════════╗");
+
+        MoodStats stats = currentUser.getMoodStats();
+        long now = System.currentTimeMillis();
+
+        out.println("║ Mood entries: " + stats.getCount());
+        if (stats.getCount() > 0) {
+            out.println("║ Average mood: " + String.format("%.1f", stats.getAverage()) + "/10");
+            out.println("║ Range: " + stats.getMin() + "-" + stats.getMax()
+                    + " (std dev " + String.format("%.1f", stats.getStdDev()) + ")");
+            out.println("║ Last 7 days: " + formatWindow(stats, 7, now));
+            out.println("║ Last 30 days: " + formatWindow(stats, 30, now));
+            out.println("║ Current streak: " + stats.getCurrentStreak(now) + " days (best "
+                    + stats.getLongestStreak() + ")");
+        }
+
+        out.println("║ Exercises completed: " + currentUser.getCompletedExerciseCount());
+        out.println("╚═════════════════════════════════════╝");
+    }
+
+    private String formatWindow(MoodStats stats, int days, long now) {
+        int count = stats.getWindowCount(days, now);
+        if (count == 0) {
+            return "no entries";
+        }
+        return String.format("%.1f", stats.getWindowAverage(days, now)) + "/10 (" + count + " entries)";
+    }
+
+    private void settingsMenu() {
+        out.println("\n=== Settings & Goals ===");
+        out.println("1. Set Daily Goal");
+        out.println("2. View Current Goals");
+        out.println("3. Exercise Display");
+        out.println("4. Back");
+        out.print("Choose: ");
+
+        int choice = readInt();
+
+        switch (choice) {
+            case 1:
+                setGoal();
+                break;
+            case 2:
+                viewGoals();
+                break;
+            case 3:
+                setExerciseStyle();
+                break;
+        }
+    }
+
+    private void setExerciseStyle() {
+        int style = currentUser.getExerciseStyle();
+        out.println("\nExercise display (choose to toggle):");
+        out.println("1. Timer: " + ((style & ExerciseRenderer.TIMER) != 0 ? "on" : "off"));
+        out.println("2. Reminder: " + ((style & ExerciseRenderer.REMINDER) != 0 ? "on" : "off"));
+        out.println("3. Plain text (no symbols): " + ((style & ExerciseRenderer.PLAIN) != 0 ? "on" : "off"));
+        out.print("Choose (0 to cancel): ");
+
+        int choice = readInt();
+
+        int flag;
+        switch (choice) {
+            case 1:
+                flag = ExerciseRenderer.TIMER;
+                break;
+            case 2:
+                flag = ExerciseRenderer.REMINDER;
+                break;
+            case 3:
+                flag = ExerciseRenderer.PLAIN;
+                break;
+            default:
+                return;
+        }
+        currentUser.setExerciseStyle(style ^ flag);
+        out.println("✓ Exercise display updated.");
+    }
+
+    private void setGoal() {
+        out.println("\nSelect your goal:");
+        out.println("1. Reduce stress");
+        out.println("2. Improve sleep");
+        out.println("3. Increase focus");
+        out.print("Choose: ");
+
+        int choice = readInt();
+
+        String goal = "";
+        switch (choice) {
+            case 1:
+                goal = "Reduce stress";
+                break;
+            case 2:
+                goal = "Improve sleep";
+                break;
+            case 3:
+                goal = "Increase focus";
+                break;
+        }
+
+        if (!goal.isEmpty()) {
+            currentUser.setGoal(goal);
+            out.println("✓ Goal set: " + goal);
+        }
+    }
+
+    private void viewGoals() {
+        String goal = currentUser.getGoal();
+        if (goal == null || goal.isEmpty()) {
+            out.println("No goals set yet.");
+        } else {
+            out.println("Your current goal: " + goal);
+        }
+    }
+}
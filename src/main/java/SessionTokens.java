@@ -0,0 +1,210 @@
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// singleton
+// Opaque session tokens: 256 random bits, URL-safe base64, resolved to the User with one
+// hash lookup and two clock comparisons. A token dies after an idle period or at an
+// absolute age, whichever comes first, and the map never holds more than maxSessions:
+// issuing past the bound evicts the stalest of a few sampled sessions (approximate LRU).
+// Samples are drawn from random slots of a ring of recently issued tokens, twice maxSessions
+// long, so every live session is equally likely to be looked at. When a whole sample finds
+// nothing live, the ring is rebuilt from the map and sampled again.
+// Expired tokens are dropped when they are next presented or sampled for eviction, and by
+// a periodic sweep once startSweeper has run, so size() counts live sessions only.
+class SessionTokens {
+    static final int DEFAULT_MAX_SESSIONS = 100_000;
+    static final long DEFAULT_IDLE_MILLIS = 30 * 60 * 1000L;
+    static final long DEFAULT_ABSOLUTE_MILLIS = 12 * 60 * 60 * 1000L;
+
+    private static final int TOKEN_BYTES = 32;
+    private static final int EVICTION_SAMPLES = 8;
+    // last-access writes are skipped within this window to keep validation read-mostly
+    private static final long TOUCH_GRANULARITY_MILLIS = 1000;
+
+    private final ConcurrentMap<String, SessionEntry> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    // the eviction sample space; a slot may hold a token that is already gone
+    private volatile AtomicReferenceArray<String> issued = new AtomicReferenceArray<>(2 * DEFAULT_MAX_SESSIONS);
+    private final AtomicLong issuedCount = new AtomicLong();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private volatile int maxSessions = DEFAULT_MAX_SESSIONS;
+    private volatile long idleMillis = DEFAULT_IDLE_MILLIS;
+    private volatile long absoluteMillis = DEFAULT_ABSOLUTE_MILLIS;
+    private ScheduledExecutorService sweeper;
+
+    private SessionTokens() {
+    }
+
+    public static SessionTokens getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final SessionTokens INSTANCE = new SessionTokens();
+    }
+
+    public void configure(int maxSessions, long idleMillis, long absoluteMillis) {
+        boolean resized = maxSessions != this.maxSessions;
+        this.maxSessions = maxSessions;
+        this.idleMillis = idleMillis;
+        this.absoluteMillis = absoluteMillis;
+        if (resized) {
+            reseed();
+        }
+    }
+
+    // removes expired tokens every periodSeconds on a daemon thread
+    public synchronized void startSweeper(long periodSeconds) {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    // returns the number of tokens removed
+    public int sweep() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        for (Map.Entry<String, SessionEntry> session : sessions.entrySet()) {
+            if (isExpired(session.getValue(), now) && sessions.remove(session.getKey(), session.getValue())) {
+                removed++;
+            }
+        }
+        expirations.add(removed);
+        return removed;
+    }
+
+    public String issue(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = System.currentTimeMillis();
+        sessions.put(token, new SessionEntry(user, now));
+        AtomicReferenceArray<String> ring = issued;
+        ring.set((int) (issuedCount.getAndIncrement() % ring.length()), token);
+        while (sessions.size() > maxSessions) {
+            evictOne(now);
+        }
+        return token;
+    }
+
+    // null for unknown, revoked or expired tokens
+    public User resolve(String token) {
+        if (token == null) {
+            return null;
+        }
+        SessionEntry entry = sessions.get(token);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (isExpired(entry, now)) {
+            if (sessions.remove(token, entry)) {
+                expirations.increment();
+            }
+            return null;
+        }
+        if (now - entry.lastAccess > TOUCH_GRANULARITY_MILLIS) {
+            entry.lastAccess = now;
+        }
+        return entry.user;
+    }
+
+    public void revoke(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    private boolean isExpired(SessionEntry entry, long now) {
+        return now - entry.lastAccess >= idleMillis || now - entry.createdAt >= absoluteMillis;
+    }
+
+    private void evictOne(long now) {
+        ThreadLocalRandom positions = ThreadLocalRandom.current();
+        while (!sessions.isEmpty()) {
+            AtomicReferenceArray<String> ring = issued;
+            String victim = null;
+            long oldest = Long.MAX_VALUE;
+            for (int i = 0; i < EVICTION_SAMPLES; i++) {
+                String token = ring.get(positions.nextInt(ring.length()));
+                SessionEntry entry = token == null ? null : sessions.get(token);
+                if (entry == null) {
+                    continue;
+                }
+                if (isExpired(entry, now)) {
+                    if (sessions.remove(token, entry)) {
+                        expirations.increment();
+                    }
+                    return;
+                }
+                if (entry.lastAccess < oldest) {
+                    oldest = entry.lastAccess;
+                    victim = token;
+                }
+            }
+            if (victim != null) {
+                if (sessions.remove(victim) != null) {
+                    evictions.increment();
+                }
+                return;
+            }
+            // every sample missed: the live sessions have drifted out of the ring, e.g. after
+            // many logouts, so put them all back and sample again
+            reseed();
+        }
+    }
+
+    // at most maxSessions + concurrent issuers are live, so they fit in the ring's 2 * maxSessions
+    private synchronized void reseed() {
+        AtomicReferenceArray<String> ring = new AtomicReferenceArray<>(2 * maxSessions);
+        int slot = 0;
+        for (String token : sessions.keySet()) {
+            if (slot == ring.length()) {
+                break;
+            }
+            ring.set(slot++, token);
+        }
+        issuedCount.set(slot);
+        issued = ring;
+    }
+
+    private static final class SessionEntry {
+        final User user;
+        final long createdAt;
+        volatile long lastAccess;
+
+        SessionEntry(User user, long now) {
+            this.user = user;
+            this.createdAt = now;
+            this.lastAccess = now;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import java.util.*;
+import java.util.function.IntFunction;
+
+// Splits keyed state into a fixed number of shards and says which shard owns a key.
+// The managers hold their data only through a router and never pick shards themselves,
+// so a shard can later live on another node behind the same S without callers changing.
+// The hash decides where existing data lives, so it must not change between releases.
+class ShardRouter<S> {
+    private final List<S> shards;
+
+    ShardRouter(int shardCount, IntFunction<S> newShard) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1: " + shardCount);
+        }
+        List<S> created = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            created.add(newShard.apply(i));
+        }
+        this.shards = Collections.unmodifiableList(created);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public int shardOf(String key) {
+        int hash = key.hashCode();
+        // String hashes of similar keys differ mostly in the low bits; mix before reducing
+        hash = (hash ^ (hash >>> 16)) * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards.size());
+    }
+
+    public S route(String key) {
+        return shards.get(shardOf(key));
+    }
+
+    // for scatter-gather reads and re-partitioning
+    public List<S> getShards() {
+        return shards;
+    }
+}
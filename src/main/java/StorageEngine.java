@@ -0,0 +1,894 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// singleton
+// Append-only write-ahead log plus periodic snapshots.
+// Log segments are named after the first LSN they hold; a snapshot rolls the log, so
+// startup loads the snapshot and replays only the segments written after it.
+// Frame layout: [int length][int crc32][long lsn][payload], crc and length cover lsn + payload.
+// One process owns a data directory at a time, through an exclusive lock on its lock file.
+// A read-only process, such as an export, takes the lock shared: it can run beside other
+// readers but not beside a writer, and it never snapshots, truncates or deletes anything.
+class StorageEngine {
+    private static final byte REGISTER = 1;
+    private static final byte MOOD_ENTRY = 2;
+    private static final byte EXERCISE = 3;
+    private static final byte GOAL = 4;
+    private static final byte POST = 5;
+    private static final byte EXERCISE_STYLE = 6;
+    private static final byte PASSWORD_HASH = 7;
+
+    private static final int SNAPSHOT_MAGIC = 0x4D57534E;
+    private static final int SNAPSHOT_VERSION = 4;
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String LOCK_FILE = "lock";
+    private static final String SEGMENT_PREFIX = "log-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int FRAME_HEADER = 16;
+    private static final long SEGMENT_BYTES = 64L << 20;
+    private static final int QUEUE_CAPACITY = 65_536;
+    private static final int MAX_BATCH = 4096;
+    private static final long FSYNC_INTERVAL_MILLIS = 200;
+    private static final long SNAPSHOT_CHECK_SECONDS = 30;
+    private static final long ROLL_TIMEOUT_MILLIS = 30_000;
+    private static final LogWrite SHUTDOWN = new LogWrite(-1, null, null);
+
+    // mutations hold the read side while they change memory and enqueue their record,
+    // a snapshot takes the write side only long enough to fix its LSN
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final Object lsnLock = new Object();
+    private final Object durableLock = new Object();
+    // under ALWAYS, the last LSN this thread's mutation appended and has not yet seen durable
+    private final ThreadLocal<long[]> pendingDurable = ThreadLocal.withInitial(() -> new long[1]);
+    private final AtomicLong recordsSinceSnapshot = new AtomicLong();
+    private final BlockingQueue<LogWrite> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private volatile boolean open;
+    private volatile boolean readOnly;
+    private volatile long durableLsn;
+    private volatile IOException failure;
+    // set while a snapshot is being written: users as they were at its LSN, if changed since
+    private volatile SnapshotCapture capture;
+    private Path directory;
+    private FsyncPolicy fsyncPolicy;
+    private long snapshotEveryRecords;
+    private long nextLsn;
+    private Thread writer;
+    private ScheduledExecutorService snapshotScheduler;
+    private FileChannel lockChannel;
+
+    // owned by the writer thread
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(1 << 20);
+    private FileChannel segment;
+    private long segmentBytes;
+    private long lastForceMillis;
+    private boolean dirty;
+
+    private StorageEngine() {
+    }
+
+    public static StorageEngine getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final StorageEngine INSTANCE = new StorageEngine();
+    }
+
+    // before open(): recover the state but never write to the directory
+    public synchronized void setReadOnly() {
+        if (open) {
+            throw new IllegalStateException("Storage is already open");
+        }
+        readOnly = true;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    // the last LSN handed out; right after open, the last one recovered from the log
+    public long getLastLsn() {
+        synchronized (lsnLock) {
+            return nextLsn;
+        }
+    }
+
+    // throws IllegalStateException at once if another process holds the directory
+    public synchronized void open(Path directory, FsyncPolicy fsyncPolicy, long snapshotEveryRecords) {
+        if (open) {
+            return;
+        }
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.snapshotEveryRecords = snapshotEveryRecords;
+        try {
+            Files.createDirectories(directory);
+            lock();
+            recover();
+            if (!readOnly) {
+                openSegment(nextLsn + 1);
+            }
+        } catch (IOException e) {
+            unlock();
+            throw new UncheckedIOException("Could not open storage in " + directory, e);
+        }
+        durableLsn = nextLsn;
+        open = true;
+        if (readOnly) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::close, "storage-shutdown"));
+            return;
+        }
+
+        writer = new Thread(this::runWriter, "storage-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "storage-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleWithFixedDelay(this::snapshotIfDue,
+                SNAPSHOT_CHECK_SECONDS, SNAPSHOT_CHECK_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "storage-shutdown"));
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public void beginMutation() {
+        stateLock.readLock().lock();
+    }
+
+    // Under ALWAYS this is where the caller waits for its records to be forced, after the
+    // user's lock and the read side are released, so writers on the same stripe queue for
+    // the lock rather than for each other's fsync. Other threads may see a change just
+    // before it is on disk; the caller never returns before.
+    public void endMutation() {
+        stateLock.readLock().unlock();
+        if (stateLock.getReadHoldCount() == 0) {
+            long[] pending = pendingDurable.get();
+            if (pending[0] != 0) {
+                long lsn = pending[0];
+                pending[0] = 0;
+                awaitDurable(lsn);
+            }
+        }
+    }
+
+    // Called inside a mutation, under the user's lock, before the user changes. While a
+    // snapshot is being written, the first change to each user keeps its prior image for it.
+    void captureBeforeChange(User user) {
+        SnapshotCapture current = capture;
+        if (current != null) {
+            current.images.putIfAbsent(user, user.image());
+        }
+    }
+
+    // called inside a mutation before a new user becomes visible, so a snapshot in progress skips it
+    void captureBeforeCreate(User user) {
+        SnapshotCapture current = capture;
+        if (current != null) {
+            current.images.putIfAbsent(user, SnapshotCapture.CREATED_AFTER);
+        }
+    }
+
+    public void logRegister(String username, String passwordHash) {
+        append(encode(REGISTER, out -> {
+            Codec.writeString(out, username);
+            Codec.writeString(out, passwordHash);
+        }));
+    }
+
+    public void logMoodEntry(String username, MoodEntry entry) {
+        append(encode(MOOD_ENTRY, out -> {
+            Codec.writeString(out, username);
+            out.writeByte(entry.getMoodLevel());
+            Codec.writeString(out, entry.getNote());
+            out.writeLong(entry.getTimestampMillis());
+        }));
+    }
+
+    public void logExercise(String username, String exerciseName, long epochSeconds) {
+        append(encode(EXERCISE, out -> {
+            Codec.writeString(out, username);
+            Codec.writeString(out, exerciseName);
+            out.writeLong(epochSeconds);
+        }));
+    }
+
+    public void logGoal(String username, String goal) {
+        append(encode(GOAL, out -> {
+            Codec.writeString(out, username);
+            Codec.writeString(out, goal);
+        }));
+    }
+
+    public void logPasswordHash(String username, String passwordHash) {
+        append(encode(PASSWORD_HASH, out -> {
+            Codec.writeString(out, username);
+            Codec.writeString(out, passwordHash);
+        }));
+    }
+
+    public void logExerciseStyle(String username, int exerciseStyle) {
+        append(encode(EXERCISE_STYLE, out -> {
+            Codec.writeString(out, username);
+            out.writeInt(exerciseStyle);
+        }));
+    }
+
+    public void logPost(CommunityPost post) {
+        append(encode(POST, out -> {
+            Codec.writeString(out, post.getUser().getUsername());
+            Codec.writeString(out, post.getTopic());
+            Codec.writeString(out, post.getMessage());
+            out.writeLong(post.getTimestampMillis());
+            out.writeInt(post.getId());
+        }));
+    }
+
+    public void snapshot() {
+        if (!open || readOnly) {
+            return;
+        }
+        try {
+            writeSnapshot();
+        } catch (IOException e) {
+            System.err.println("Snapshot failed: " + e.getMessage());
+        }
+    }
+
+    // flushes the log and writes a final snapshot so the next start has nothing to replay
+    public synchronized void close() {
+        if (!open) {
+            return;
+        }
+        if (readOnly) {
+            open = false;
+            unlock();
+            return;
+        }
+        snapshotScheduler.shutdownNow();
+        snapshot();
+        stateLock.writeLock().lock();
+        try {
+            open = false;
+            enqueue(SHUTDOWN);
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        unlock();
+    }
+
+    private void lock() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock(0, Long.MAX_VALUE, readOnly);
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            unlock();
+            throw new IllegalStateException(directory + " is in use by another MindWell process"
+                    + (readOnly ? "; stop it before reading the data" : ""));
+        }
+    }
+
+    // closing the channel releases its lock
+    private void unlock() {
+        if (lockChannel != null) {
+            try {
+                lockChannel.close();
+            } catch (IOException e) {
+                System.err.println("Could not release " + directory.resolve(LOCK_FILE) + ": " + e.getMessage());
+            }
+            lockChannel = null;
+        }
+    }
+
+    private void append(byte[] payload) {
+        if (!open) {
+            return;
+        }
+        if (readOnly) {
+            throw new IllegalStateException("Storage is open read-only");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Storage is unavailable", failure);
+        }
+        long lsn;
+        synchronized (lsnLock) {
+            lsn = ++nextLsn;
+            if (!enqueue(new LogWrite(lsn, payload, null))) {
+                throw new UncheckedIOException("Storage is unavailable", failure);
+            }
+        }
+        recordsSinceSnapshot.incrementAndGet();
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            if (stateLock.getReadHoldCount() > 0) {
+                pendingDurable.get()[0] = lsn;
+            } else {
+                awaitDurable(lsn);
+            }
+        }
+    }
+
+    private void awaitDurable(long lsn) {
+        synchronized (durableLock) {
+            boolean interrupted = false;
+            while (durableLsn < lsn && failure == null) {
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Storage is unavailable", failure);
+        }
+    }
+
+    // false once the writer has failed, rather than blocking on a queue nobody drains
+    private boolean enqueue(LogWrite write) {
+        boolean interrupted = false;
+        boolean queued = false;
+        while (!queued && failure == null) {
+            try {
+                queued = queue.offer(write, FSYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return queued;
+    }
+
+    private static byte[] encode(byte type, RecordBody body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            body.writeTo(out);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // group commit: drain whatever queued up while the previous batch was being written
+    private void runWriter() {
+        List<LogWrite> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (true) {
+                LogWrite first = queue.poll(FSYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+                boolean shutdown = false;
+                long lastLsn = -1;
+                for (LogWrite write : batch) {
+                    if (write == SHUTDOWN) {
+                        shutdown = true;
+                    } else if (write.rolled != null) {
+                        flushBuffer();
+                        force();
+                        openSegment(write.lsn);
+                        write.rolled.countDown();
+                    } else {
+                        writeFrame(write);
+                        lastLsn = write.lsn;
+                    }
+                }
+                flushBuffer();
+                batch.clear();
+
+                long now = System.currentTimeMillis();
+                if (shutdown || fsyncPolicy == FsyncPolicy.ALWAYS
+                        || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastForceMillis >= FSYNC_INTERVAL_MILLIS)) {
+                    force();
+                }
+                if (lastLsn > 0) {
+                    publishDurable(lastLsn);
+                }
+                if (shutdown) {
+                    segment.close();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("Storage writer stopped: " + e.getMessage());
+            publishDurable(Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeFrame(LogWrite write) throws IOException {
+        int length = 8 + write.payload.length;
+        if (segmentBytes + 8 + length > SEGMENT_BYTES && segmentBytes > 0) {
+            flushBuffer();
+            force();
+            openSegment(write.lsn);
+        }
+        int frameBytes = FRAME_HEADER + write.payload.length;
+        if (writeBuffer.remaining() < frameBytes) {
+            flushBuffer();
+        }
+        if (writeBuffer.capacity() < frameBytes) {
+            ByteBuffer frame = ByteBuffer.allocate(frameBytes);
+            putFrame(frame, length, write);
+            frame.flip();
+            writeFully(frame);
+        } else {
+            putFrame(writeBuffer, length, write);
+        }
+        segmentBytes += frameBytes;
+        dirty = true;
+    }
+
+    private void putFrame(ByteBuffer target, int length, LogWrite write) {
+        int start = target.position();
+        target.putInt(length).putInt(0).putLong(write.lsn).put(write.payload);
+        ByteBuffer covered = target.duplicate();
+        covered.position(start + 8).limit(target.position());
+        crc.reset();
+        crc.update(covered);
+        target.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void flushBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+    }
+
+    private void force() throws IOException {
+        if (dirty && fsyncPolicy != FsyncPolicy.NEVER) {
+            segment.force(false);
+        }
+        dirty = false;
+        lastForceMillis = System.currentTimeMillis();
+    }
+
+    private void publishDurable(long lsn) {
+        synchronized (durableLock) {
+            durableLsn = lsn;
+            durableLock.notifyAll();
+        }
+    }
+
+    private void openSegment(long firstLsn) throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        Path path = directory.resolve(SEGMENT_PREFIX + String.format("%020d", firstLsn) + SEGMENT_SUFFIX);
+        segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentBytes = segment.size();
+    }
+
+    private void snapshotIfDue() {
+        if (recordsSinceSnapshot.get() >= snapshotEveryRecords) {
+            snapshot();
+        }
+    }
+
+    // Mutations are paused only while the LSN is fixed and the log rolled at it. The state
+    // is serialized afterwards: users changed since then are written from the images their
+    // first change kept, and only posts up to the last id at the LSN are included.
+    private synchronized void writeSnapshot() throws IOException {
+        if (failure != null) {
+            throw new IOException("Storage writer has failed", failure);
+        }
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        long snapshotLsn;
+        CountDownLatch rolled = new CountDownLatch(1);
+        SnapshotCapture current;
+
+        stateLock.writeLock().lock();
+        try {
+            synchronized (lsnLock) {
+                snapshotLsn = nextLsn;
+                if (!enqueue(new LogWrite(snapshotLsn + 1, null, rolled))) {
+                    throw new IOException("Storage writer has failed", failure);
+                }
+            }
+            current = new SnapshotCapture(CommunityManager.getInstance().getLastPostId());
+            capture = current;
+            recordsSinceSnapshot.set(0);
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            writeState(temp, snapshotLsn, current);
+        } finally {
+            capture = null;
+        }
+        awaitRoll(rolled);
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (Path path : listSegments()) {
+            if (firstLsnOf(path) <= snapshotLsn) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // segments before the roll are only deleted once the writer has moved past them
+    private void awaitRoll(CountDownLatch rolled) throws IOException {
+        long deadline = System.currentTimeMillis() + ROLL_TIMEOUT_MILLIS;
+        try {
+            while (!rolled.await(FSYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure != null || !writer.isAlive()) {
+                    throw new IOException("Storage writer stopped before the log was rolled", failure);
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException("Timed out waiting for the log to roll");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the log to roll");
+        }
+    }
+
+    private void writeState(Path path, long snapshotLsn, SnapshotCapture capture) throws IOException {
+        CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), 1 << 16), new CRC32());
+        try (DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(snapshotLsn);
+
+            // completions are stored packed with catalog ids; the names let a load remap them
+            List<Exercise> catalog = ExerciseManager.getInstance().getAllExercises();
+            out.writeInt(catalog.size());
+            for (Exercise exercise : catalog) {
+                Codec.writeString(out, exercise.getName());
+            }
+
+            // the current image is read before the capture is checked: a change that kept an
+            // image after the check happened after the read, so the read image predates it
+            List<User> users = new ArrayList<>();
+            List<User.Image> images = new ArrayList<>();
+            for (User user : UserManager.getInstance().getUsers()) {
+                User.Image image = user.image();
+                User.Image kept = capture.images.get(user);
+                if (kept != SnapshotCapture.CREATED_AFTER) {
+                    users.add(user);
+                    images.add(kept != null ? kept : image);
+                }
+            }
+            out.writeInt(users.size());
+            for (int i = 0; i < users.size(); i++) {
+                User.Image image = images.get(i);
+                Codec.writeString(out, users.get(i).getUsername());
+                Codec.writeString(out, image.passwordHash);
+                Codec.writeString(out, image.goal);
+                out.writeInt(image.exerciseStyle);
+                MoodHistory moods = image.moodHistory;
+                out.writeInt(moods.size());
+                for (int j = 0; j < moods.size(); j++) {
+                    out.writeByte(moods.levelAt(j));
+                    Codec.writeString(out, moods.noteAt(j));
+                    out.writeLong(moods.timestampAt(j));
+                }
+                CompletionLog completions = image.completions;
+                out.writeInt(completions.size());
+                for (int j = 0; j < completions.size(); j++) {
+                    out.writeLong(completions.recordAt(j));
+                }
+            }
+
+            // posts are restored in the order they were written so every index rebuilds identically
+            CommunityManager community = CommunityManager.getInstance();
+            List<CommunityPost> posts = new ArrayList<>();
+            for (String topic : community.getTopics()) {
+                for (CommunityPost post : community.getPostsByTopic(topic)) {
+                    if (post.getId() <= capture.lastPostId) {
+                        posts.add(post);
+                    }
+                }
+            }
+            posts.sort(Comparator.comparingInt(CommunityPost::getId));
+            out.writeInt(posts.size());
+            for (CommunityPost post : posts) {
+                Codec.writeString(out, post.getUser().getUsername());
+                Codec.writeString(out, post.getTopic());
+                Codec.writeString(out, post.getMessage());
+                out.writeLong(post.getTimestampMillis());
+                out.writeInt(post.getId());
+            }
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private void recover() throws IOException {
+        long snapshotLsn = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            snapshotLsn = loadSnapshot(snapshot);
+        }
+        nextLsn = snapshotLsn;
+
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            // a segment followed by one that starts at or before the snapshot is entirely covered by it
+            if (i + 1 < segments.size() && firstLsnOf(segments.get(i + 1)) <= snapshotLsn + 1) {
+                if (!readOnly) {
+                    Files.deleteIfExists(segments.get(i));
+                }
+                continue;
+            }
+            if (!replaySegment(segments.get(i), snapshotLsn)) {
+                break;
+            }
+        }
+    }
+
+    private long loadSnapshot(Path path) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16), new CRC32());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Unrecognized snapshot format: " + path);
+            }
+            int version = in.readInt();
+            if (version < 1 || version > SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            long snapshotLsn = in.readLong();
+
+            UserManager userManager = UserManager.getInstance();
+            ExerciseManager exerciseManager = ExerciseManager.getInstance();
+            // snapshot catalog id -> exercise in the current catalog, null if it was removed
+            Exercise[] catalog = new Exercise[0];
+            if (version >= 3) {
+                catalog = new Exercise[in.readInt()];
+                for (int i = 0; i < catalog.length; i++) {
+                    catalog[i] = exerciseManager.getExercise(Codec.readString(in));
+                }
+            }
+            int userCount = in.readInt();
+            for (int i = 0; i < userCount; i++) {
+                User user = new User(Codec.readString(in), Codec.readString(in));
+                user.applyGoal(Codec.readString(in));
+                if (version >= 4) {
+                    user.applyExerciseStyle(in.readInt());
+                }
+                int moodCount = in.readInt();
+                for (int j = 0; j < moodCount; j++) {
+                    int level = in.readByte();
+                    String note = Codec.readString(in);
+                    user.applyMoodEntry(new MoodEntry(level, note, in.readLong()));
+                }
+                int exerciseCount = in.readInt();
+                for (int j = 0; j < exerciseCount; j++) {
+                    if (version >= 3) {
+                        long completion = in.readLong();
+                        int id = CompletionLog.exerciseIdOf(completion);
+                        Exercise exercise = id < catalog.length ? catalog[id] : null;
+                        if (exercise != null) {
+                            user.applyCompletion(exercise.getId(), CompletionLog.epochSecondsOf(completion),
+                                    CompletionLog.durationOf(completion));
+                        }
+                    } else {
+                        // versions 1 and 2 stored names only
+                        Exercise exercise = exerciseManager.getExercise(Codec.readString(in));
+                        if (exercise != null) {
+                            user.applyCompletedExercise(exercise, 0);
+                        }
+                    }
+                }
+                userManager.restoreUser(user);
+            }
+
+            CommunityManager community = CommunityManager.getInstance();
+            int postCount = in.readInt();
+            for (int i = 0; i < postCount; i++) {
+                User user = userManager.getUser(Codec.readString(in));
+                String topic = Codec.readString(in);
+                String message = Codec.readString(in);
+                long timestamp = in.readLong();
+                // version 1 snapshots predate post ids; posts are stored in order so ids are reissued
+                int id = version >= 2 ? in.readInt() : community.nextPostId();
+                if (user != null) {
+                    community.applyPost(new CommunityPost(id, user, topic, message, timestamp));
+                }
+            }
+
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + path);
+            }
+            return snapshotLsn;
+        }
+    }
+
+    // returns false when the segment ends in a torn or corrupt frame; the file is cut
+    // back to the last good frame, unless read-only, and nothing after it is trusted
+    private boolean replaySegment(Path path, long snapshotLsn) throws IOException {
+        try (FileChannel channel = readOnly ? FileChannel.open(path, StandardOpenOption.READ)
+                : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size == 0) {
+                return true;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 check = new CRC32();
+            while (mapped.remaining() >= FRAME_HEADER) {
+                int frameStart = mapped.position();
+                int length = mapped.getInt();
+                int expectedCrc = mapped.getInt();
+                if (length < 8 || length > mapped.remaining()) {
+                    cutBack(channel, frameStart);
+                    return false;
+                }
+                byte[] frame = new byte[length];
+                mapped.get(frame);
+                check.reset();
+                check.update(frame);
+                if ((int) check.getValue() != expectedCrc) {
+                    cutBack(channel, frameStart);
+                    return false;
+                }
+                ByteBuffer record = ByteBuffer.wrap(frame);
+                long lsn = record.getLong();
+                if (lsn > snapshotLsn) {
+                    applyRecord(record);
+                    nextLsn = Math.max(nextLsn, lsn);
+                }
+            }
+            if (mapped.hasRemaining()) {
+                cutBack(channel, mapped.position());
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private void cutBack(FileChannel channel, long size) throws IOException {
+        if (!readOnly) {
+            channel.truncate(size);
+        }
+    }
+
+    private void applyRecord(ByteBuffer record) {
+        UserManager userManager = UserManager.getInstance();
+        byte type = record.get();
+        String username = Codec.readString(record);
+        if (type == REGISTER) {
+            userManager.restoreUser(new User(username, Codec.readString(record)));
+            return;
+        }
+        User user = userManager.getUser(username);
+        if (user == null) {
+            return;
+        }
+        switch (type) {
+            case MOOD_ENTRY: {
+                int level = record.get();
+                String note = Codec.readString(record);
+                user.applyMoodEntry(new MoodEntry(level, note, record.getLong()));
+                break;
+            }
+            case EXERCISE: {
+                Exercise exercise = ExerciseManager.getInstance().getExercise(Codec.readString(record));
+                // older records carry no completion time
+                long epochSeconds = record.hasRemaining() ? record.getLong() : 0;
+                if (exercise != null) {
+                    user.applyCompletedExercise(exercise, epochSeconds);
+                }
+                break;
+            }
+            case GOAL:
+                user.applyGoal(Codec.readString(record));
+                break;
+            case EXERCISE_STYLE:
+                user.applyExerciseStyle(record.getInt());
+                break;
+            case PASSWORD_HASH:
+                user.applyPasswordHash(Codec.readString(record));
+                break;
+            case POST: {
+                String topic = Codec.readString(record);
+                String message = Codec.readString(record);
+                long timestamp = record.getLong();
+                CommunityManager community = CommunityManager.getInstance();
+                int id = record.hasRemaining() ? record.getInt() : community.nextPostId();
+                community.applyPost(new CommunityPost(id, user, topic, message, timestamp));
+                break;
+            }
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        segments.sort(Comparator.comparingLong(StorageEngine::firstLsnOf));
+        return segments;
+    }
+
+    private static long firstLsnOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private interface RecordBody {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private static class SnapshotCapture {
+        static final User.Image CREATED_AFTER = new User.Image(null, null, 0, MoodHistory.EMPTY, CompletionLog.EMPTY);
+
+        final Map<User, User.Image> images = new ConcurrentHashMap<>();
+        final int lastPostId;
+
+        SnapshotCapture(int lastPostId) {
+            this.lastPostId = lastPostId;
+        }
+    }
+
+    // a log record, or a request to roll the log when rolled is set
+    private static class LogWrite {
+        final long lsn;
+        final byte[] payload;
+        final CountDownLatch rolled;
+
+        LogWrite(long lsn, byte[] payload, CountDownLatch rolled) {
+            this.lsn = lsn;
+            this.payload = payload;
+            this.rolled = rolled;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+import java.util.*;
+
+interface Subject {
+    void subscribe(String topic, Observer observer);
+    void unsubscribe(String topic, Observer observer);
+    void notifyObservers(String topic, String message);
+}
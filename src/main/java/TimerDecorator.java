@@ -0,0 +1,14 @@
+class TimerDecorator extends ExerciseDecorator {
+    public TimerDecorator(Exercise exercise) {
+        super(exercise);
+    }
+
+    @Override
+    public String execute() {
+        return "⏱ Timer: " + duration + " minutes\n" +
+                "────────────────────────\n" +
+                wrappedExercise.execute() +
+                "\n────────────────────────\n" +
+                "✓ Time's up!";
+    }
+}
@@ -0,0 +1,43 @@
+import java.util.*;
+
+// "yyyy-MM-dd HH:mm" in the local zone, written straight into the caller's buffer.
+// Replaces a SimpleDateFormat per call: no formatter, calendar or string is created.
+final class TimestampFormat {
+    private static final TimeZone ZONE = TimeZone.getDefault();
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    private TimestampFormat() {
+    }
+
+    static StringBuilder appendTo(StringBuilder out, long epochMillis) {
+        long local = epochMillis + ZONE.getOffset(epochMillis);
+        long epochDay = Math.floorDiv(local, MoodHistory.DAY_MILLIS);
+        int minuteOfDay = (int) (Math.floorMod(local, MoodHistory.DAY_MILLIS) / MINUTE_MILLIS);
+
+        // civil date from a day count (Howard Hinnant's days_from_civil, inverted)
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        out.append(year).append('-');
+        appendTwoDigits(out, month).append('-');
+        appendTwoDigits(out, day).append(' ');
+        appendTwoDigits(out, minuteOfDay / 60).append(':');
+        return appendTwoDigits(out, minuteOfDay % 60);
+    }
+
+    // local calendar day, so streaks and windows follow the user's midnight
+    static long epochDay(long epochMillis) {
+        return Math.floorDiv(epochMillis + ZONE.getOffset(epochMillis), MoodHistory.DAY_MILLIS);
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder out, int value) {
+        return out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+class TopicSubscribers {
+    private String topic;
+    private List<Observer> observers;
+    private final Histogram fanOut;
+
+    public TopicSubscribers(String topic) {
+        this.topic = topic;
+        // copy-on-write: subscribing is rare, fan-out iterates from dispatcher threads
+        this.observers = new CopyOnWriteArrayList<>();
+        this.fanOut = Metrics.getInstance().histogram(Metrics.labeled("mindwell_topic_fanout", "topic", topic),
+                "Subscribers reached per delivery, by topic", 1);
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public List<Observer> getObservers() {
+        return observers;
+    }
+
+    List<Observer> getObserversForDelivery() {
+        fanOut.record(observers.size());
+        return observers;
+    }
+
+    public void addObserver(Observer observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+}
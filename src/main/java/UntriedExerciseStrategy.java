@@ -0,0 +1,11 @@
+class UntriedExerciseStrategy implements RecommendationStrategy {
+    @Override
+    public boolean appliesTo(MoodFeatures features) {
+        return features.getUntriedExercise() != null;
+    }
+
+    @Override
+    public String getRecommendation(MoodFeatures features) {
+        return " Something new: you haven't tried " + features.getUntriedExercise() + " yet.";
+    }
+}
@@ -0,0 +1,301 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+class User implements Observer {
+    private static final Object[] WRITE_STRIPES = new Object[64];
+
+    static {
+        Arrays.setAll(WRITE_STRIPES, i -> new Object());
+    }
+
+    private static final Histogram MOOD_ENTRY_LATENCY = Metrics.getInstance()
+            .latency("mindwell_mood_entry_seconds", "User.addMoodEntry latency, including the log append");
+    private static final Counter EXERCISES_COMPLETED = Metrics.getInstance()
+            .counter("mindwell_exercises_completed_total", "Exercises completed");
+
+    private String username;
+    // a PasswordHasher hash; plain text only for users not yet migrated
+    private volatile String passwordHash;
+    // immutable versions, replaced under the user's stripe lock; readers just take the reference
+    private volatile MoodHistory moodHistory = MoodHistory.EMPTY;
+    private volatile MoodStats moodStats = MoodStats.EMPTY;
+    private volatile CompletionLog completions = CompletionLog.EMPTY;
+    private volatile Consumer<String> notificationListener;
+    private volatile String goal;
+    private volatile int exerciseStyle = ExerciseRenderer.DEFAULT_STYLE;
+    // bumped on every change a recommendation depends on
+    private final AtomicLong dataVersion = new AtomicLong();
+    private volatile CachedRecommendation cachedRecommendation;
+
+    public User(String username, String passwordHash) {
+        this.username = username;
+        this.passwordHash = passwordHash;
+    }
+
+    // Writers for one user serialize on a lock shared by every user hashing to the same
+    // stripe, so there is no lock object per user and unrelated users rarely contend.
+    // Holding it across apply and log also keeps each user's log order equal to memory order.
+    private Object lock() {
+        return WRITE_STRIPES[username.hashCode() & (WRITE_STRIPES.length - 1)];
+    }
+
+    public void addMoodEntry(MoodEntry entry) {
+        long start = System.nanoTime();
+        StorageEngine storage = StorageEngine.getInstance();
+        storage.beginMutation();
+        try {
+            synchronized (lock()) {
+                storage.captureBeforeChange(this);
+                applyMoodEntry(entry);
+                storage.logMoodEntry(username, entry);
+                ChangeStream.getInstance().publish(new ChangeEvent.MoodLogged(username, entry));
+            }
+        } finally {
+            storage.endMutation();
+            MOOD_ENTRY_LATENCY.recordSince(start);
+        }
+    }
+
+    // timestamp is in epoch milliseconds; completions keep whole seconds
+    public void completeExercise(Exercise exercise, long timestamp) {
+        long epochSeconds = Math.floorDiv(timestamp, 1000L);
+        StorageEngine storage = StorageEngine.getInstance();
+        storage.beginMutation();
+        try {
+            synchronized (lock()) {
+                storage.captureBeforeChange(this);
+                applyCompletedExercise(exercise, epochSeconds);
+                storage.logExercise(username, exercise.getName(), epochSeconds);
+                ChangeStream.getInstance().publish(new ChangeEvent.ExerciseCompleted(username, exercise.getName(),
+                        epochSeconds, exercise.getDuration()));
+            }
+        } finally {
+            storage.endMutation();
+        }
+        EXERCISES_COMPLETED.increment();
+    }
+
+    // apply* only change memory; they are shared by the public mutators and log replay
+    void applyMoodEntry(MoodEntry entry) {
+        appendMoodEntry(entry);
+        SearchIndex.getInstance().indexMoodNote(username, entry.getTimestampMillis(), entry.getNote());
+    }
+
+    // like applyMoodEntry, but the note isn't searchable until indexMoodNotes(); for a user
+    // built before it is known to be kept
+    void appendMoodEntry(MoodEntry entry) {
+        synchronized (lock()) {
+            moodHistory = moodHistory.append(entry.getMoodLevel(), entry.getNote(), entry.getTimestampMillis());
+            moodStats = moodStats.add(entry.getMoodLevel(), entry.getTimestampMillis());
+        }
+        dataVersion.incrementAndGet();
+    }
+
+    void indexMoodNotes() {
+        MoodHistory history = moodHistory;
+        SearchIndex index = SearchIndex.getInstance();
+        for (int i = 0; i < history.size(); i++) {
+            index.indexMoodNote(username, history.timestampAt(i), history.noteAt(i));
+        }
+    }
+
+    void applyCompletedExercise(Exercise exercise, long epochSeconds) {
+        applyCompletion(exercise.getId(), epochSeconds, exercise.getDuration());
+    }
+
+    // snapshots keep the duration recorded at completion time
+    void applyCompletion(int exerciseId, long epochSeconds, int duration) {
+        synchronized (lock()) {
+            completions = completions.add(exerciseId, epochSeconds, duration);
+        }
+        dataVersion.incrementAndGet();
+    }
+
+    void applyExerciseStyle(int exerciseStyle) {
+        this.exerciseStyle = exerciseStyle & ExerciseRenderer.ALL;
+    }
+
+    void applyGoal(String goal) {
+        this.goal = goal;
+        dataVersion.incrementAndGet();
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    // compare-and-set, so a login upgrade and the background migration can't both apply
+    boolean replacePasswordHash(String expected, String replacement) {
+        StorageEngine storage = StorageEngine.getInstance();
+        storage.beginMutation();
+        try {
+            synchronized (lock()) {
+                if (!passwordHash.equals(expected)) {
+                    return false;
+                }
+                storage.captureBeforeChange(this);
+                applyPasswordHash(replacement);
+                storage.logPasswordHash(username, replacement);
+            }
+        } finally {
+            storage.endMutation();
+        }
+        return true;
+    }
+
+    void applyPasswordHash(String passwordHash) {
+        this.passwordHash = passwordHash;
+    }
+
+    public MoodHistory getMoodHistory() {
+        return moodHistory;
+    }
+
+    public CompletionLog getCompletions() {
+        return completions;
+    }
+
+    public MoodStats getMoodStats() {
+        return moodStats;
+    }
+
+    // best matches first; only this user's notes are ever searched
+    public List<MoodEntry> searchMoodNotes(String query, int limit) {
+        List<MoodEntry> result = new ArrayList<>();
+        for (long minute : SearchIndex.getInstance().searchMoodNotes(username, query, limit)) {
+            long from = minute * SearchIndex.MINUTE_MILLIS;
+            for (MoodEntry entry : moodHistory.between(from, from + SearchIndex.MINUTE_MILLIS)) {
+                if (result.size() < limit && SearchIndex.matches(entry.getNote(), query)) {
+                    result.add(entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    public int getCompletedExerciseCount() {
+        return completions.size();
+    }
+
+    public boolean hasCompleted(Exercise exercise) {
+        return completions.countOf(exercise.getId()) > 0;
+    }
+
+    long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    // everything a snapshot stores; each field is an immutable version, so this is a few reads
+    Image image() {
+        return new Image(passwordHash, goal, exerciseStyle, moodHistory, completions);
+    }
+
+    static final class Image {
+        final String passwordHash;
+        final String goal;
+        final int exerciseStyle;
+        final MoodHistory moodHistory;
+        final CompletionLog completions;
+
+        Image(String passwordHash, String goal, int exerciseStyle, MoodHistory moodHistory,
+              CompletionLog completions) {
+            this.passwordHash = passwordHash;
+            this.goal = goal;
+            this.exerciseStyle = exerciseStyle;
+            this.moodHistory = moodHistory;
+            this.completions = completions;
+        }
+    }
+
+    CachedRecommendation getCachedRecommendation() {
+        return cachedRecommendation;
+    }
+
+    void setCachedRecommendation(CachedRecommendation cachedRecommendation) {
+        this.cachedRecommendation = cachedRecommendation;
+    }
+
+    static final class CachedRecommendation {
+        final long version;
+        final int generation;
+        final String text;
+
+        CachedRecommendation(long version, int generation, String text) {
+            this.version = version;
+            this.generation = generation;
+            this.text = text;
+        }
+    }
+
+    public void setGoal(String goal) {
+        StorageEngine storage = StorageEngine.getInstance();
+        storage.beginMutation();
+        try {
+            synchronized (lock()) {
+                storage.captureBeforeChange(this);
+                applyGoal(goal);
+                storage.logGoal(username, goal);
+                ChangeStream.getInstance().publish(new ChangeEvent.GoalChanged(username, goal));
+            }
+        } finally {
+            storage.endMutation();
+        }
+    }
+
+    public String getGoal() {
+        return goal;
+    }
+
+    // ExerciseRenderer flags
+    public int getExerciseStyle() {
+        return exerciseStyle;
+    }
+
+    public void setExerciseStyle(int exerciseStyle) {
+        StorageEngine storage = StorageEngine.getInstance();
+        storage.beginMutation();
+        try {
+            synchronized (lock()) {
+                storage.captureBeforeChange(this);
+                applyExerciseStyle(exerciseStyle);
+                storage.logExerciseStyle(username, exerciseStyle);
+                ChangeStream.getInstance().publish(new ChangeEvent.ExerciseStyleChanged(username, getExerciseStyle()));
+            }
+        } finally {
+            storage.endMutation();
+        }
+    }
+
+    // the session the user is logged in through; offline users get no notifications
+    synchronized void setNotificationListener(Consumer<String> listener) {
+        this.notificationListener = listener;
+    }
+
+    synchronized void removeNotificationListener(Consumer<String> listener) {
+        if (notificationListener == listener) {
+            notificationListener = null;
+        }
+    }
+
+    @Override
+    public void update(String topic, String message) {
+        notify("Notification: New post in '" + topic + "'");
+    }
+
+    @Override
+    public void update(String topic, String latestMessage, int postCount) {
+        notify("Notification: " + postCount + " new posts in '" + topic + "'");
+    }
+
+    private void notify(String text) {
+        Consumer<String> listener = notificationListener;
+        if (listener != null) {
+            listener.accept(text);
+        }
+    }
+}
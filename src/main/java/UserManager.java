@@ -0,0 +1,210 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+
+// singleton
+// Passwords are kept only as salted PBKDF2 hashes. Hashing is deliberately slow, so every
+// hash and verification runs on the CredentialVerifier's bounded pool; a login storm queues
+// there, or is turned away when the queue is full, instead of taking every CPU.
+class UserManager {
+    private static final Histogram REGISTER_LATENCY = Metrics.getInstance()
+            .latency("mindwell_register_seconds", "UserManager.register latency, including hashing");
+    private static final Histogram LOGIN_LATENCY = Metrics.getInstance()
+            .latency("mindwell_login_seconds", "UserManager.login latency, including queueing and hashing");
+    private static final Counter LOGIN_FAILURES = Metrics.getInstance()
+            .counter("mindwell_login_failures_total", "Logins rejected for a wrong name or password");
+    private static final Counter CREDENTIAL_REJECTIONS = Metrics.getInstance()
+            .counter("mindwell_credential_rejected_total", "Registers and logins turned away by a full verifier queue");
+
+    // partitioned by username; every lookup goes to exactly one shard
+    private volatile ShardRouter<ConcurrentMap<String, User>> users;
+    private volatile CredentialVerifier verifier;
+
+    private UserManager() {
+        users = new ShardRouter<>(1, shard -> new ConcurrentHashMap<>());
+        verifier = new CredentialVerifier(new PasswordHasher(PasswordHasher.DEFAULT_ITERATIONS),
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2), CredentialVerifier.DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public static UserManager getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final UserManager INSTANCE = new UserManager();
+    }
+
+    // takes effect for hashes made from now on; existing hashes are upgraded at their next login
+    public void configurePasswordHashing(int iterations, int workers, int queueCapacity) {
+        CredentialVerifier previous = verifier;
+        verifier = new CredentialVerifier(new PasswordHasher(iterations), workers, queueCapacity);
+        previous.shutdown();
+    }
+
+    public CredentialVerifier getCredentialVerifier() {
+        return verifier;
+    }
+
+    // Moves every user into shardCount new shards. Meant for startup: a register
+    // racing with it can land in the old shards and be lost.
+    public void configureShards(int shardCount) {
+        ShardRouter<ConcurrentMap<String, User>> next = new ShardRouter<>(shardCount, shard -> new ConcurrentHashMap<>());
+        for (ConcurrentMap<String, User> shard : users.getShards()) {
+            for (User user : shard.values()) {
+                next.route(user.getUsername()).put(user.getUsername(), user);
+            }
+        }
+        users = next;
+    }
+
+    public ShardRouter<ConcurrentMap<String, User>> getShardRouter() {
+        return users;
+    }
+
+    // throws RejectedExecutionException when the verification pool is saturated
+    public boolean register(String username, String password) {
+        long start = System.nanoTime();
+        try {
+            return registerHashed(username, password);
+        } catch (RejectedExecutionException e) {
+            CREDENTIAL_REJECTIONS.increment();
+            throw e;
+        } finally {
+            REGISTER_LATENCY.recordSince(start);
+        }
+    }
+
+    private boolean registerHashed(String username, String password) {
+        if (users.route(username).containsKey(username)) {
+            return false;
+        }
+        CredentialVerifier current = verifier;
+        String hash = current.call(() -> current.getHasher().hash(password));
+        StorageEngine storage = StorageEngine.getInstance();
+        storage.beginMutation();
+        try {
+            User user = new User(username, hash);
+            storage.captureBeforeCreate(user);
+            // putIfAbsent is atomic, so two threads can't both claim the same name
+            if (users.route(username).putIfAbsent(username, user) != null) {
+                return false;
+            }
+            storage.logRegister(username, hash);
+            ChangeStream.getInstance().publish(new ChangeEvent.Registered(username));
+            return true;
+        } finally {
+            storage.endMutation();
+        }
+    }
+
+    // throws RejectedExecutionException when the verification pool is saturated
+    public User login(String username, String password) {
+        long start = System.nanoTime();
+        try {
+            User user = verify(username, password);
+            if (user == null) {
+                LOGIN_FAILURES.increment();
+            }
+            return user;
+        } catch (RejectedExecutionException e) {
+            CREDENTIAL_REJECTIONS.increment();
+            throw e;
+        } finally {
+            LOGIN_LATENCY.recordSince(start);
+        }
+    }
+
+    private User verify(String username, String password) {
+        CredentialVerifier current = verifier;
+        PasswordHasher hasher = current.getHasher();
+        User user = getUser(username);
+        // unknown names are checked against a dummy hash so they take as long as a wrong password
+        String stored = user != null ? user.getPasswordHash() : hasher.getDummyHash();
+        if (!current.call(() -> hasher.verify(password, stored)) || user == null) {
+            return null;
+        }
+        if (hasher.needsRehash(stored)) {
+            String upgraded = current.call(() -> hasher.hash(password));
+            user.replacePasswordHash(stored, upgraded);
+        }
+        return user;
+    }
+
+    // Hashes passwords that older versions stored in plain text, one at a time through the
+    // verifier so the migration never holds more than one worker. The snapshot afterwards
+    // rolls the log, which drops the segments that still held the plain text.
+    public void migratePlaintextPasswords() {
+        Thread migration = new Thread(() -> {
+            int migrated = 0;
+            for (User user : getUsers()) {
+                String stored = user.getPasswordHash();
+                if (PasswordHasher.isHash(stored)) {
+                    continue;
+                }
+                String hash = null;
+                while (hash == null) {
+                    CredentialVerifier current = verifier;
+                    try {
+                        hash = current.callBlocking(() -> current.getHasher().hash(stored));
+                    } catch (RejectedExecutionException e) {
+                        // replaced by configurePasswordHashing: retry on the new verifier
+                        if (verifier == current) {
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (user.replacePasswordHash(stored, hash)) {
+                    migrated++;
+                }
+            }
+            if (migrated > 0) {
+                StorageEngine.getInstance().snapshot();
+            }
+        }, "password-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    public User getUser(String username) {
+        return users.route(username).get(username);
+    }
+
+    // every shard in turn; a live, read-only view like the single map it replaced
+    public Collection<User> getUsers() {
+        List<ConcurrentMap<String, User>> shards = users.getShards();
+        return new AbstractCollection<User>() {
+            @Override
+            public Iterator<User> iterator() {
+                return shards.stream().flatMap(shard -> shard.values().stream()).iterator();
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (ConcurrentMap<String, User> shard : shards) {
+                    size += shard.size();
+                }
+                return size;
+            }
+        };
+    }
+
+    // recovery path, the user is already in the log
+    void restoreUser(User user) {
+        users.route(user.getUsername()).put(user.getUsername(), user);
+    }
+
+    // bulk import path: adds a fully built user without logging it; false if the name is taken
+    boolean importUser(User user) {
+        StorageEngine storage = StorageEngine.getInstance();
+        storage.beginMutation();
+        try {
+            return users.route(user.getUsername()).putIfAbsent(user.getUsername(), user) == null;
+        } finally {
+            storage.endMutation();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+class VolatileMoodStrategy implements RecommendationStrategy {
+    private static final double VOLATILITY_THRESHOLD = 2.5;
+
+    @Override
+    public boolean appliesTo(MoodFeatures features) {
+        return features.getSampleSize() >= 3 && features.getVolatility() >= VOLATILITY_THRESHOLD;
+    }
+
+    @Override
+    public String getRecommendation(MoodFeatures features) {
+        return " Your mood has been swinging quite a bit.\n"
+                + "- A regular sleep and meal routine can steady things\n"
+                + "- Short daily mindfulness practice helps with ups and downs";
+    }
+}
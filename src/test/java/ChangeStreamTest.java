@@ -0,0 +1,153 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+// Writers publish through a small ring to a subscriber that keeps up and one that is
+// deliberately slow. Writers must never wait for either; each subscriber must see every
+// event either delivered, in order and per user in the order it was written, or counted
+// as missed, and the slow one must have been lapped.
+public class ChangeStreamTest {
+    private static final int WRITERS = 4;
+    private static final int PER_WRITER = 10_000;
+    private static final int CAPACITY = 1 << 12;
+    // as if the log recovered at startup ended here
+    private static final long FIRST_SEQUENCE = 1_000_000;
+
+    @BeforeClass
+    public static void startAfterTheLog() {
+        ChangeStream.getInstance().startAt(FIRST_SEQUENCE);
+    }
+
+    @Test
+    public void slowSubscriberIsLappedWithoutStallingWriters() throws Exception {
+        ChangeStream stream = ChangeStream.getInstance();
+        stream.configure(CAPACITY);
+        long start = stream.getNextSequence();
+        long total = (long) WRITERS * PER_WRITER;
+        StreamChecker fast = new StreamChecker(0);
+        StreamChecker slow = new StreamChecker(200_000);
+        ChangeStream.Subscription fastSubscription = stream.subscribe("check-fast", start, fast);
+        ChangeStream.Subscription slowSubscription = stream.subscribe("check-slow", start, slow);
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            User user = new User("stream" + w, "pw");
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < PER_WRITER; i++) {
+                    user.addMoodEntry(new MoodEntry(1 + i % 10, "", i));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue("writers waited for the slow subscriber", slowSubscription.getPosition() < start + total);
+
+        long deadline = System.currentTimeMillis() + 60_000;
+        while ((fastSubscription.getPosition() < start + total || slowSubscription.getPosition() < start + total)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        fastSubscription.close();
+        slowSubscription.close();
+        for (StreamChecker checker : Arrays.asList(fast, slow)) {
+            assertNull(checker.problem);
+            assertEquals("events received plus missed", total, checker.received + checker.missed);
+        }
+        assertTrue("the slow subscriber was never lapped", slow.missed > 0);
+        assertEquals(slowSubscription.getMissed(), slow.missed);
+
+        List<ChangeEvent> oldest = new ArrayList<>();
+        stream.read(0, 1, oldest);
+        assertTrue(stream.getOldestSequence() > FIRST_SEQUENCE);
+        assertEquals("reading from 0 starts at the oldest event", stream.getOldestSequence(), oldest.get(0).getSequence());
+    }
+
+    // offsets saved by an earlier run, behind this run's first sequence or past anything it
+    // has handed out, both come back as a gap followed by the events this run publishes
+    @Test
+    public void offsetsFromAnEarlierRunReportAGap() throws Exception {
+        assertResumesAfterGap(10);
+        assertResumesAfterGap(ChangeStream.getInstance().getNextSequence() + 50_000);
+    }
+
+    private static void assertResumesAfterGap(long saved) throws Exception {
+        ChangeStream stream = ChangeStream.getInstance();
+        long resumeAt = Math.min(Math.max(saved, stream.getOldestSequence()), stream.getNextSequence());
+        StreamChecker checker = new StreamChecker(0);
+        ChangeStream.Subscription subscription = stream.subscribe("check-restart", saved, checker);
+        User user = new User("restart" + saved, "pw");
+        for (int i = 0; i < 10; i++) {
+            user.addMoodEntry(new MoodEntry(5, "", i));
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (checker.received < 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        subscription.close();
+        assertNull(checker.problem);
+        assertEquals("gap reported from the saved offset", saved, checker.gapFrom);
+        assertEquals(resumeAt, checker.gapTo);
+        assertEquals(10, checker.received);
+    }
+
+    private static final class StreamChecker implements ChangeListener {
+        private final long nanosPerEvent;
+        private final Map<String, Long> lastTimestamp = new HashMap<>();
+        private long next = -1;
+        private volatile long received;
+        private volatile long missed;
+        private volatile String problem;
+        private volatile long gapFrom = -1;
+        private volatile long gapTo = -1;
+
+        StreamChecker(long nanosPerEvent) {
+            this.nanosPerEvent = nanosPerEvent;
+        }
+
+        @Override
+        public void onEvent(ChangeEvent event) {
+            if (next >= 0 && event.getSequence() != next) {
+                problem = "expected sequence " + next + ", got " + event.getSequence();
+            }
+            next = event.getSequence() + 1;
+            MoodEntry entry = ((ChangeEvent.MoodLogged) event).getEntry();
+            Long previous = lastTimestamp.put(event.getUsername(), entry.getTimestampMillis());
+            if (previous != null && previous >= entry.getTimestampMillis()) {
+                problem = event.getUsername() + "'s events arrived out of order";
+            }
+            received++;
+            if (nanosPerEvent > 0) {
+                LockSupport.parkNanos(nanosPerEvent);
+            }
+        }
+
+        @Override
+        public void onGap(long first, long next) {
+            if (this.next >= 0 && first != this.next) {
+                problem = "gap from " + first + " reported at sequence " + this.next;
+            }
+            if (gapFrom < 0) {
+                gapFrom = first;
+                gapTo = next;
+            }
+            this.next = next;
+            missed += Math.max(0, next - first);
+        }
+    }
+}
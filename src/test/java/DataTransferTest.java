@@ -0,0 +1,120 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Exports everything, hot and cold posts alike, and reads it back into the same state,
+// then feeds the importer deliberately bad lines and a damaged frame.
+public class DataTransferTest {
+    private static final int USERS = 500;
+    private static final int POSTS = 5_000;
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static UserManager users;
+    private static CommunityManager community;
+    private static DataTransfer transfer;
+
+    @BeforeClass
+    public static void seed() throws IOException {
+        users = UserManager.getInstance();
+        community = CommunityManager.getInstance();
+        users.configurePasswordHashing(1, 1, CredentialVerifier.DEFAULT_QUEUE_CAPACITY);
+        for (int i = 0; i < USERS; i++) {
+            users.register("user" + i, "pw" + i);
+            users.getUser("user" + i).addMoodEntry(new MoodEntry(1 + i % 10, i % 2 == 0 ? "note " + i : ""));
+        }
+        List<String> topics = community.getTopics();
+        for (int i = 0; i < POSTS; i++) {
+            community.addPost(users.getUser("user" + i % USERS), topics.get(i % topics.size()), "post " + i);
+        }
+        community.openColdStore(folder.newFolder("cold").toPath());
+        community.enableRetention(0, community.getHotBytes() / 2, 3600);
+        community.enforceRetention();
+        transfer = new DataTransfer(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test
+    public void reimportingAnExportFindsEverythingPresent() throws IOException {
+        long postTotal = 0;
+        for (String topic : community.getTopics()) {
+            postTotal += community.getPostCount(topic);
+        }
+        for (DataTransfer.Format format : DataTransfer.Format.values()) {
+            Path file = folder.getRoot().toPath().resolve("export." + format.name().toLowerCase(Locale.ROOT));
+            DataTransfer.Summary exported = transfer.exportTo(file, format);
+            assertEquals(format + " users", users.getUsers().size(), exported.getUsers());
+            assertEquals(format + " posts", postTotal, exported.getPosts());
+
+            DataTransfer.Summary imported = transfer.importFrom(file);
+            assertEquals(format + " problems", Arrays.asList(), imported.getProblems());
+            assertEquals(0, imported.getUsers());
+            assertEquals(0, imported.getPosts());
+            assertEquals(0, imported.getRejected());
+            assertEquals(exported.getUsers() + exported.getPosts(), imported.getSkipped());
+        }
+    }
+
+    @Test
+    public void badLinesAreRejectedOneByOne() throws IOException {
+        String topic = community.getTopics().get(0);
+        List<String> lines = Arrays.asList(
+                "{\"type\":\"header\",\"format\":\"mindwell-export\",\"version\":1}",
+                "{\"type\":\"user\",\"username\":\"imported\",\"passwordHash\":\"pw\",\"goal\":null,"
+                        + "\"exerciseStyle\":0,\"moods\":[{\"level\":4,\"timestamp\":1000,\"note\":\"a \\\"quoted\\\" note\"}],"
+                        + "\"completions\":[]}",
+                "{\"type\":\"user\",\"username\":\"bad-level\",\"passwordHash\":\"pw\",\"goal\":null,"
+                        + "\"exerciseStyle\":0,\"moods\":[{\"level\":11,\"timestamp\":1000,\"note\":\"\"}],\"completions\":[]}",
+                "{\"type\":\"user\",\"username\":\"bad-exercise\",\"passwordHash\":\"pw\",\"goal\":null,"
+                        + "\"exerciseStyle\":0,\"moods\":[],\"completions\":[{\"exercise\":\"Juggling\",\"epochSeconds\":1,\"duration\":5}]}",
+                "{\"type\":\"post\",\"id\":2000000000,\"username\":\"imported\",\"topic\":\"" + topic
+                        + "\",\"message\":\"hello\",\"timestamp\":1000}",
+                "{\"type\":\"post\",\"id\":2000000001,\"username\":\"imported\",\"topic\":\"Gardening\","
+                        + "\"message\":\"hello\",\"timestamp\":1000}",
+                "{\"type\":\"post\",\"id\":2000000002,\"username\":\"nobody\",\"topic\":\"" + topic
+                        + "\",\"message\":\"hello\",\"timestamp\":1000}",
+                "{\"type\":\"user\",\"username\":",
+                "{\"type\":\"end\",\"users\":4,\"posts\":3}");
+        Path bad = folder.newFile("bad.jsonl").toPath();
+        Files.write(bad, lines, StandardCharsets.UTF_8);
+
+        DataTransfer.Summary imported = transfer.importFrom(bad);
+        assertEquals(1, imported.getUsers());
+        assertEquals(1, imported.getPosts());
+        assertEquals(5, imported.getRejected());
+        assertEquals(imported.getProblems().toString(), 5, imported.getProblems().size());
+        User user = users.getUser("imported");
+        assertEquals("a \"quoted\" note", user.getMoodHistory().noteAt(0));
+        assertSame(user, community.getPost(2_000_000_000).getUser());
+    }
+
+    @Test
+    public void damagedBinaryExportIsRefused() throws IOException {
+        Path binary = folder.getRoot().toPath().resolve("damaged.binary");
+        transfer.exportTo(binary, DataTransfer.Format.BINARY);
+        byte[] damaged = Files.readAllBytes(binary);
+        damaged[damaged.length / 2] ^= 1;
+        Files.write(binary, damaged);
+        try {
+            transfer.importFrom(binary);
+            fail("damaged export was accepted");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Checksum mismatch")
+                    || e.getMessage().startsWith("Corrupt record") || e.getMessage().startsWith("Truncated record"));
+        }
+    }
+}
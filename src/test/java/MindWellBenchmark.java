@@ -0,0 +1,473 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Micro-benchmarks for the manager and domain hot paths.
+//
+//   mvn -B -Pbenchmark test-compile exec:exec -Dbenchmark.args="[options]"
+//
+// or, after mvn -B test-compile,
+//
+//   java -cp target/classes:target/test-classes MindWellBenchmark [options]
+//
+// Options:
+//   -f <text>          only run benchmarks whose name contains text
+//   -t <n,n,...>       thread counts (default 1,4)
+//   -p <name=v,v,...>  override a parameter, e.g. -p users=1000,1000000
+//   -wi <n> -i <n>     warmup / measurement iterations (default 2 / 5)
+//   -r <ms>            time per iteration (default 1000)
+//   -rf <file>         write results as JSON (default benchmark-results.json)
+//
+// Every operation is timed, so results carry throughput plus p50/p99/p999 latency.
+// The managers are singletons, so parameter values run in ascending order and each
+// setup only tops the shared state up to the requested size. Correctness checks live
+// in the unit tests next to this class; this only measures.
+public class MindWellBenchmark {
+    private static final int MAX_SAMPLES_PER_THREAD = 1 << 20;
+    private static final String[] SEARCH_WORDS = {"sleep", "anxious", "calm", "walk", "tired", "hopeful", "slow", "work"};
+
+    private final Map<String, List<Integer>> params = new LinkedHashMap<>();
+    private final List<Result> results = new ArrayList<>();
+    private String filter = "";
+    private int[] threadCounts = {1, 4};
+    private int warmupIterations = 2;
+    private int iterations = 5;
+    private long iterationMillis = 1000;
+    private String resultFile = "benchmark-results.json";
+
+    static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        MindWellBenchmark bench = new MindWellBenchmark();
+        bench.params.put("users", Arrays.asList(1_000, 100_000));
+        bench.params.put("postsPerTopic", Arrays.asList(1_000, 100_000));
+        bench.params.put("subscribers", Arrays.asList(10, 1_000, 100_000));
+        bench.params.put("historyLength", Arrays.asList(100, 10_000, 1_000_000));
+        bench.params.put("shards", Arrays.asList(1, 4, 16));
+        bench.params.put("passwordIterations", Arrays.asList(10_000, 100_000, PasswordHasher.DEFAULT_ITERATIONS));
+        bench.parseArgs(args);
+        bench.runAll();
+        bench.writeJson();
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "-f":
+                    filter = value;
+                    i++;
+                    break;
+                case "-t":
+                    threadCounts = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    i++;
+                    break;
+                case "-p": {
+                    String[] parts = value.split("=", 2);
+                    List<Integer> values = new ArrayList<>();
+                    for (String v : parts[1].split(",")) {
+                        values.add(Integer.parseInt(v));
+                    }
+                    params.put(parts[0], values);
+                    i++;
+                    break;
+                }
+                case "-wi":
+                    warmupIterations = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "-i":
+                    iterations = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "-r":
+                    iterationMillis = Long.parseLong(value);
+                    i++;
+                    break;
+                case "-rf":
+                    resultFile = value;
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private void runAll() throws Exception {
+        UserManager users = UserManager.getInstance();
+        CommunityManager community = CommunityManager.getInstance();
+        String topic = community.getTopics().get(0);
+
+        // one worker per benchmark thread so throughput per core is ops/s divided by threads
+        int maxThreads = Arrays.stream(threadCounts).max().orElse(1);
+        for (int iterations : sorted("passwordIterations")) {
+            users.configurePasswordHashing(iterations, maxThreads, CredentialVerifier.DEFAULT_QUEUE_CAPACITY);
+            String username = "cost" + iterations;
+            users.register(username, "pw");
+            run("UserManager.login.pbkdf2", "passwordIterations", iterations,
+                    (thread, random) -> users.login(username, "pw"));
+        }
+        CredentialVerifier verifier = users.getCredentialVerifier();
+        System.out.printf("credential queue time: avg %.3f ms, max %.3f ms%n",
+                verifier.getAverageQueueMillis(), verifier.getMaxQueueMillis());
+
+        // the user-count runs measure the lookup and pool hand-off, not the hash
+        users.configurePasswordHashing(1, maxThreads, CredentialVerifier.DEFAULT_QUEUE_CAPACITY);
+        for (int userCount : sorted("users")) {
+            topUpUsers(users, userCount);
+            run("UserManager.login", "users", userCount, (thread, random) -> {
+                int id = random.nextInt(userCount);
+                return users.login("user" + id, "pw" + id);
+            });
+            // what every request after the first login costs
+            SessionTokens sessions = SessionTokens.getInstance();
+            String[] tokens = new String[userCount];
+            for (int i = 0; i < userCount; i++) {
+                tokens[i] = sessions.issue(users.getUser("user" + i));
+            }
+            run("SessionTokens.resolve", "users", userCount,
+                    (thread, random) -> sessions.resolve(tokens[random.nextInt(userCount)]));
+        }
+
+        User author = users.getUser("user0");
+        for (int postCount : sorted("postsPerTopic")) {
+            while (community.getPostCount(topic) < postCount) {
+                int n = community.getPostCount(topic);
+                community.addPost(author, topic, "seed " + SEARCH_WORDS[n % SEARCH_WORDS.length] + " " + n);
+            }
+            run("CommunityManager.getPostCount", "postsPerTopic", postCount,
+                    (thread, random) -> community.getPostCount(topic));
+            run("CommunityManager.getTopicPage", "postsPerTopic", postCount, (thread, random) ->
+                    community.getTopicPage(topic, 1 + random.nextInt(postCount), 20));
+            run("CommunityManager.searchPosts", "postsPerTopic", postCount, (thread, random) ->
+                    community.searchPosts(SEARCH_WORDS[random.nextInt(SEARCH_WORDS.length)], 10));
+            run("CommunityManager.searchPosts.prefix", "postsPerTopic", postCount, (thread, random) ->
+                    community.searchPosts("sl* " + SEARCH_WORDS[random.nextInt(SEARCH_WORDS.length)], 10));
+        }
+
+        // a user with posts in every topic, so each of their reads spans several shards
+        User poster = users.getUser("user1");
+        for (int i = 0; i < 1_000; i++) {
+            List<String> topics = community.getTopics();
+            community.addPost(poster, topics.get(i % topics.size()), "spread " + i);
+        }
+        for (int shardCount : sorted("shards")) {
+            users.configureShards(shardCount);
+            community.configureShards(shardCount);
+            run("UserManager.getUser", "shards", shardCount, (thread, random) -> users.getUser("user" + random.nextInt(1_000)));
+            run("CommunityManager.getUserPage", "shards", shardCount, (thread, random) ->
+                    community.getUserPage(poster, FeedPage.FIRST, 20));
+            run("CommunityManager.getPostsByUser", "shards", shardCount,
+                    (thread, random) -> community.getPostsByUser(poster));
+        }
+
+        // synchronous fan-out first, enabling the async dispatcher is one-way
+        String fanOutTopic = community.getTopics().get(1);
+        List<BlackholeObserver> observers = new ArrayList<>();
+        for (int subscriberCount : sorted("subscribers")) {
+            while (observers.size() < subscriberCount) {
+                BlackholeObserver observer = new BlackholeObserver();
+                observers.add(observer);
+                community.subscribe(fanOutTopic, observer);
+            }
+            run("CommunityManager.notifyObservers", "subscribers", subscriberCount, (thread, random) -> {
+                community.notifyObservers(fanOutTopic, "message");
+                return null;
+            });
+        }
+        run("CommunityManager.addPost", "subscribers", observers.size(), (thread, random) -> {
+            community.addPost(author, fanOutTopic, "message");
+            return null;
+        });
+        community.enableAsyncNotifications(10_000, 2);
+        run("CommunityManager.addPost.async", "subscribers", observers.size(), (thread, random) -> {
+            community.addPost(author, fanOutTopic, "message");
+            return null;
+        });
+
+        for (int length : sorted("historyLength")) {
+            User user = new User("history" + length, "pw");
+            long start = System.currentTimeMillis() - length * 60_000L;
+            for (int i = 0; i < length; i++) {
+                user.applyMoodEntry(new MoodEntry(1 + i % 10, i % 4 == 0 ? "note " + i : "", start + i * 60_000L));
+            }
+            MoodHistory history = user.getMoodHistory();
+            run("MoodStats.average", "historyLength", length,
+                    (thread, random) -> user.getMoodStats().getAverage());
+            run("MoodHistory.scanAverage", "historyLength", length, (thread, random) -> {
+                long sum = 0;
+                for (int i = 0; i < history.size(); i++) {
+                    sum += history.levelAt(i);
+                }
+                return sum;
+            });
+            run("MoodHistory.lastWeek", "historyLength", length, (thread, random) -> {
+                long now = System.currentTimeMillis();
+                return history.dailyAverages(now - 7 * MoodHistory.DAY_MILLIS, now);
+            });
+            RecommendationEngine engine = RecommendationEngine.getInstance();
+            run("RecommendationEngine.recommend", "historyLength", length,
+                    (thread, random) -> engine.recommend(user));
+            // applyGoal only bumps the data version, so every call recomputes
+            run("RecommendationEngine.recommend.miss", "historyLength", length, (thread, random) -> {
+                user.applyGoal("goal");
+                return engine.recommend(user);
+            });
+            StringBuilder[] lines = new StringBuilder[64];
+            Arrays.setAll(lines, i -> new StringBuilder(256));
+            run("MoodHistory.appendEntry", "historyLength", length, (thread, random) -> {
+                StringBuilder line = lines[thread];
+                line.setLength(0);
+                return history.appendEntry(random.nextInt(history.size()), line);
+            });
+        }
+
+        MoodEntry entry = new MoodEntry(7, "a calm and steady day");
+        run("MoodEntry.toString", null, 0, (thread, random) -> entry.toString());
+
+        ExerciseManager catalog = ExerciseManager.getInstance();
+        if (catalog.getAllExercises().isEmpty()) {
+            catalog.addDefaultExercises();
+        }
+        List<Exercise> exercises = catalog.getAllExercises();
+        // the per-start chain building this replaced, for comparison
+        run("Exercise.execute.decorated", null, 0, (thread, random) ->
+                new TimerDecorator(new ReminderDecorator(exercises.get(random.nextInt(exercises.size())))).execute());
+        ExerciseRenderer renderer = ExerciseRenderer.getInstance();
+        renderer.warm();
+        run("ExerciseRenderer.render", null, 0, (thread, random) ->
+                renderer.render(exercises.get(random.nextInt(exercises.size())), random.nextInt(8)));
+
+        // the per-call cost every instrumented hot path pays
+        Histogram histogram = Metrics.getInstance().latency("benchmark_record_seconds", "Benchmark only");
+        run("Histogram.record", null, 0, (thread, random) -> {
+            histogram.record(random.nextInt(1_000_000));
+            return null;
+        });
+
+        // the same reads once three quarters of the posts have moved to compressed segments
+        Path coldDirectory = Files.createTempDirectory("mindwell-cold");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteDirectory(coldDirectory)));
+        community.openColdStore(coldDirectory);
+        List<Integer> topicIds = topicIds(community, topic);
+        community.enableRetention(0, community.getHotBytes() / 4, 3600);
+        int moved = community.enforceRetention();
+        System.out.printf("%,d posts moved cold, %,d bytes of segments%n", moved, community.getColdStore().getSegmentBytes());
+        int topicPosts = topicIds.size();
+        run("CommunityManager.getTopicPage.cold", "postsPerTopic", topicPosts, (thread, random) ->
+                community.getTopicPage(topic, 1 + random.nextInt(topicPosts), 20));
+        run("CommunityManager.getPost.cold", "postsPerTopic", topicPosts, (thread, random) ->
+                community.getPost(topicIds.get(topicPosts - 1 - random.nextInt(Math.max(1, moved / 2)))));
+
+        // what every mutation now pays to publish its change, with one subscriber reading along
+        ChangeStream stream = ChangeStream.getInstance();
+        ChangeStream.Subscription reader = stream.subscribe("benchmark", stream.getNextSequence(), event -> sink = event);
+        run("ChangeStream.publish", null, 0, (thread, random) -> {
+            stream.publish(new ChangeEvent.GoalChanged("user0", "goal"));
+            return null;
+        });
+        reader.close();
+
+        run("Singletons.getInstance", null, 0, (thread, random) -> {
+            UserManager.getInstance();
+            ExerciseManager.getInstance();
+            return CommunityManager.getInstance();
+        });
+    }
+
+    // every post id in the topic, newest first, read page by page
+    private static List<Integer> topicIds(CommunityManager community, String topic) {
+        List<Integer> ids = new ArrayList<>();
+        FeedPage page = community.getTopicPage(topic, FeedPage.FIRST, 500);
+        while (true) {
+            page.getPosts().forEach(post -> ids.add(post.getId()));
+            if (!page.hasMore()) {
+                return ids;
+            }
+            page = community.getTopicPage(topic, page.getNextCursor(), 500);
+        }
+    }
+
+    private static void deleteDirectory(Path directory) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            // a temp directory, left for the OS to clean up
+        }
+    }
+
+    private void topUpUsers(UserManager users, int count) {
+        for (int i = 0; i < count; i++) {
+            if (users.getUser("user" + i) == null) {
+                users.register("user" + i, "pw" + i);
+            }
+        }
+    }
+
+    private List<Integer> sorted(String name) {
+        List<Integer> values = new ArrayList<>(params.get(name));
+        Collections.sort(values);
+        return values;
+    }
+
+    private void run(String name, String paramName, int paramValue, Operation operation) throws Exception {
+        if (!name.contains(filter)) {
+            return;
+        }
+        for (int threads : threadCounts) {
+            String label = name + (paramName == null ? "" : " " + paramName + "=" + paramValue) + " threads=" + threads;
+            for (int i = 0; i < warmupIterations; i++) {
+                measure(operation, threads);
+            }
+            long operations = 0;
+            long nanos = 0;
+            List<long[]> samples = new ArrayList<>();
+            for (int i = 0; i < iterations; i++) {
+                Iteration iteration = measure(operation, threads);
+                operations += iteration.operations;
+                nanos += iteration.elapsedNanos;
+                samples.addAll(iteration.samples);
+            }
+            Result result = new Result(name, paramName, paramValue, threads,
+                    operations * 1_000_000_000.0 / nanos, merge(samples));
+            results.add(result);
+            System.out.printf("%-70s %,14.0f ops/s  p50 %,8d ns  p99 %,8d ns  p999 %,8d ns%n",
+                    label, result.opsPerSecond, result.p50, result.p99, result.p999);
+        }
+    }
+
+    private Iteration measure(Operation operation, int threads) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                SplittableRandom random = new SplittableRandom(thread);
+                long[] samples = new long[MAX_SAMPLES_PER_THREAD + 1];
+                int count = 0;
+                ready.countDown();
+                go.await();
+                while (running.get()) {
+                    long start = System.nanoTime();
+                    sink = operation.run(thread, random);
+                    long elapsed = System.nanoTime() - start;
+                    // keep a uniform sample once the buffer is full
+                    int slot = count < MAX_SAMPLES_PER_THREAD ? count : random.nextInt(count + 1);
+                    if (slot < MAX_SAMPLES_PER_THREAD) {
+                        samples[slot + 1] = elapsed;
+                    }
+                    count++;
+                }
+                samples[0] = count;
+                return samples;
+            }));
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        Thread.sleep(iterationMillis);
+        running.set(false);
+
+        Iteration iteration = new Iteration();
+        for (Future<long[]> future : futures) {
+            long[] samples = future.get();
+            int count = (int) samples[0];
+            iteration.operations += count;
+            iteration.samples.add(Arrays.copyOfRange(samples, 1, 1 + Math.min(count, MAX_SAMPLES_PER_THREAD)));
+        }
+        iteration.elapsedNanos = System.nanoTime() - start;
+        pool.shutdown();
+        return iteration;
+    }
+
+    private static long[] merge(List<long[]> samples) {
+        int total = 0;
+        for (long[] part : samples) {
+            total += part.length;
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (long[] part : samples) {
+            System.arraycopy(part, 0, merged, offset, part.length);
+            offset += part.length;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    private void writeJson() throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            json.append("  {\"benchmark\": \"").append(r.name).append("\", \"threads\": ").append(r.threads)
+                    .append(", \"params\": {");
+            if (r.paramName != null) {
+                json.append('"').append(r.paramName).append("\": ").append(r.paramValue);
+            }
+            json.append("}, \"mode\": \"thrpt\", \"opsPerSecond\": ").append(String.format(Locale.ROOT, "%.1f", r.opsPerSecond))
+                    .append(", \"latencyNanos\": {\"p50\": ").append(r.p50)
+                    .append(", \"p99\": ").append(r.p99)
+                    .append(", \"p999\": ").append(r.p999).append("}}")
+                    .append(i + 1 < results.size() ? ",\n" : "\n");
+        }
+        json.append("]\n");
+        Files.write(Paths.get(resultFile), json.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Results written to " + resultFile);
+    }
+
+    private interface Operation {
+        Object run(int thread, SplittableRandom random);
+    }
+
+    private static class Iteration {
+        long operations;
+        long elapsedNanos;
+        List<long[]> samples = new ArrayList<>();
+    }
+
+    private static class Result {
+        final String name;
+        final String paramName;
+        final int paramValue;
+        final int threads;
+        final double opsPerSecond;
+        final long p50;
+        final long p99;
+        final long p999;
+
+        Result(String name, String paramName, int paramValue, int threads, double opsPerSecond, long[] sortedSamples) {
+            this.name = name;
+            this.paramName = paramName;
+            this.paramValue = paramValue;
+            this.threads = threads;
+            this.opsPerSecond = opsPerSecond;
+            this.p50 = percentile(sortedSamples, 0.50);
+            this.p99 = percentile(sortedSamples, 0.99);
+            this.p999 = percentile(sortedSamples, 0.999);
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+        }
+    }
+
+    private static class BlackholeObserver implements Observer {
+        @Override
+        public void update(String topic, String message) {
+            sink = message;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Moving posts out of memory must not change what any read returns.
+public class RetentionTest {
+    private static final int USERS = 50;
+    private static final int POSTS = 20_000;
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static UserManager users;
+    private static CommunityManager community;
+
+    @BeforeClass
+    public static void seed() {
+        users = UserManager.getInstance();
+        community = CommunityManager.getInstance();
+        users.configurePasswordHashing(1, 1, CredentialVerifier.DEFAULT_QUEUE_CAPACITY);
+        for (int i = 0; i < USERS; i++) {
+            users.register("user" + i, "pw" + i);
+        }
+        List<String> topics = community.getTopics();
+        for (int i = 0; i < POSTS; i++) {
+            community.addPost(users.getUser("user" + i % USERS), topics.get(i % topics.size()), "seed calm walk " + i);
+        }
+    }
+
+    @Test
+    public void pagesAreUnchangedAfterMovingPostsCold() throws Exception {
+        User poster = users.getUser("user1");
+        List<List<Integer>> expected = new ArrayList<>();
+        for (String topic : community.getTopics()) {
+            expected.add(topicIds(topic));
+        }
+        List<Integer> expectedUserIds = userIds(poster);
+
+        community.openColdStore(folder.newFolder("cold").toPath());
+        long hotBytes = community.getHotBytes();
+        community.enableRetention(0, hotBytes / 4, 3600);
+        int moved = community.enforceRetention();
+        assertTrue("nothing moved cold", moved > 0);
+        assertTrue("retention left " + community.getHotBytes() + " bytes hot", community.getHotBytes() <= hotBytes / 4);
+
+        for (int i = 0; i < community.getTopics().size(); i++) {
+            String topic = community.getTopics().get(i);
+            assertEquals("topic pages for " + topic, expected.get(i), topicIds(topic));
+            assertEquals("post count for " + topic, expected.get(i).size(), community.getPostCount(topic));
+        }
+        assertEquals("user pages", expectedUserIds, userIds(poster));
+        // getPostsByUser holds only the in-memory posts once some are cold
+        List<Integer> hot = new ArrayList<>();
+        community.getPostsByUser(poster).forEach(post -> hot.add(post.getId()));
+        assertTrue(hot.size() < expectedUserIds.size());
+        assertTrue(expectedUserIds.containsAll(hot));
+
+        List<Integer> oldest = expected.get(0);
+        int coldId = oldest.get(oldest.size() - 1);
+        assertEquals(coldId, community.getPost(coldId).getId());
+    }
+
+    // every post id in the topic, newest first, read page by page
+    private static List<Integer> topicIds(String topic) {
+        List<Integer> ids = new ArrayList<>();
+        FeedPage page = community.getTopicPage(topic, FeedPage.FIRST, 500);
+        while (true) {
+            page.getPosts().forEach(post -> ids.add(post.getId()));
+            if (!page.hasMore()) {
+                return ids;
+            }
+            page = community.getTopicPage(topic, page.getNextCursor(), 500);
+        }
+    }
+
+    private static List<Integer> userIds(User user) {
+        List<Integer> ids = new ArrayList<>();
+        FeedPage page = community.getUserPage(user, FeedPage.FIRST, 50);
+        while (true) {
+            page.getPosts().forEach(post -> ids.add(post.getId()));
+            if (!page.hasMore()) {
+                return ids;
+            }
+            page = community.getUserPage(user, page.getNextCursor(), 50);
+        }
+    }
+}
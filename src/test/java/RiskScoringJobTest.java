@@ -0,0 +1,74 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Moods logged after the as-of day must not change a single byte of the scored output;
+// only the recommendations file, which reads current state, may differ.
+public class RiskScoringJobTest {
+    private static final int USERS = 200;
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long AS_OF_DAY = LocalDate.now().minusDays(1).toEpochDay();
+
+    @BeforeClass
+    public static void seed() {
+        UserManager users = UserManager.getInstance();
+        users.configurePasswordHashing(1, 1, CredentialVerifier.DEFAULT_QUEUE_CAPACITY);
+        long asOfMillis = AS_OF_DAY * MoodHistory.DAY_MILLIS + MoodHistory.DAY_MILLIS / 2;
+        for (int i = 0; i < USERS; i++) {
+            users.register("user" + i, "pw");
+            User user = users.getUser("user" + i);
+            for (int day = 6; day >= 0; day--) {
+                user.addMoodEntry(new MoodEntry(1 + (i + day) % 4, "", asOfMillis - day * MoodHistory.DAY_MILLIS));
+            }
+        }
+    }
+
+    @Test
+    public void laterMoodsLeaveTheScoredFilesUnchanged() throws IOException {
+        Path first = folder.newFolder("first").toPath();
+        RiskScoringJob.Summary before = new RiskScoringJob(first, AS_OF_DAY, 8, 2, 50).run();
+        assertTrue("nobody was flagged", before.getUsersFlagged() > 0);
+        List<String> recommendationsBefore = Files.readAllLines(before.getRecommendationsFile());
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < USERS; i++) {
+            UserManager.getInstance().getUser("user" + i).addMoodEntry(new MoodEntry(10, "", now));
+        }
+        Path second = folder.newFolder("second").toPath();
+        RiskScoringJob.Summary after = new RiskScoringJob(second, AS_OF_DAY, 8, 2, 50).run();
+
+        Path firstRun = before.getOutreachFile().getParent();
+        Path secondRun = after.getOutreachFile().getParent();
+        List<String> files = scoredFiles(firstRun);
+        assertEquals(scoredFiles(secondRun), files);
+        for (String file : files) {
+            assertArrayEquals(file, Files.readAllBytes(firstRun.resolve(file)), Files.readAllBytes(secondRun.resolve(file)));
+        }
+        assertEquals(recommendationsBefore.size(), Files.readAllLines(after.getRecommendationsFile()).size());
+    }
+
+    private static List<String> scoredFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> !name.equals("recommendations.tsv"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SessionTokensTest {
+    private static final int MAX_SESSIONS = 100;
+
+    // expired sessions leave the map without anyone presenting or sampling them
+    @Test
+    public void sweepDropsExpiredSessions() throws Exception {
+        SessionTokens tokens = SessionTokens.getInstance();
+        tokens.configure(MAX_SESSIONS, 50, 60_000);
+        User user = new User("sweep", "pw");
+        for (int i = 0; i < 10; i++) {
+            tokens.issue(user);
+        }
+        assertEquals(10, tokens.size());
+        Thread.sleep(100);
+        assertEquals(10, tokens.sweep());
+        assertEquals(0, tokens.size());
+    }
+
+    // after enough logouts the ring holds only dead tokens; eviction must still find the
+    // live sessions and keep the map at its bound
+    @Test
+    public void evictionFindsSessionsOutsideTheRing() {
+        SessionTokens tokens = SessionTokens.getInstance();
+        tokens.configure(MAX_SESSIONS, 60_000, 60_000);
+        tokens.sweep();
+        User user = new User("evict", "pw");
+        List<String> kept = new ArrayList<>();
+        for (int i = 0; i < MAX_SESSIONS; i++) {
+            kept.add(tokens.issue(user));
+        }
+        for (int i = 0; i < 4 * MAX_SESSIONS; i++) {
+            tokens.revoke(tokens.issue(user));
+        }
+        int live = tokens.size();
+        long evictions = tokens.getEvictions();
+        for (int i = live; i <= MAX_SESSIONS; i++) {
+            tokens.issue(user);
+        }
+        assertEquals(MAX_SESSIONS, tokens.size());
+        assertEquals(evictions + 1, tokens.getEvictions());
+        int resolved = 0;
+        for (String token : kept) {
+            if (tokens.resolve(token) != null) {
+                resolved++;
+            }
+        }
+        // one session went, either an older one or one just issued
+        assertTrue(resolved == live || resolved == live - 1);
+    }
+}
@@ -0,0 +1,64 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+// A user with posts in every topic, so each of their reads spans several shards;
+// every shard count has to return exactly what the single shard did.
+public class ShardingTest {
+    private static final int USERS = 2_000;
+    private static final int POSTS = 1_000;
+
+    private static UserManager users;
+    private static CommunityManager community;
+
+    @BeforeClass
+    public static void seed() {
+        users = UserManager.getInstance();
+        community = CommunityManager.getInstance();
+        users.configurePasswordHashing(1, 1, CredentialVerifier.DEFAULT_QUEUE_CAPACITY);
+        for (int i = 0; i < USERS; i++) {
+            users.register("user" + i, "pw" + i);
+        }
+        User poster = users.getUser("user1");
+        List<String> topics = community.getTopics();
+        for (int i = 0; i < POSTS; i++) {
+            community.addPost(poster, topics.get(i % topics.size()), "spread " + i);
+        }
+    }
+
+    @Test
+    public void repartitioningKeepsEveryUserAndPost() {
+        User poster = users.getUser("user1");
+        List<CommunityPost> unsharded = new ArrayList<>(community.getPostsByUser(poster));
+        List<Integer> unshardedPage = pageIds(poster);
+        assertEquals(POSTS, unsharded.size());
+        for (int shardCount : new int[] {4, 16, 1}) {
+            users.configureShards(shardCount);
+            community.configureShards(shardCount);
+            assertEquals("users after re-partitioning into " + shardCount, USERS, users.getUsers().size());
+            for (int i = 0; i < USERS; i += 97) {
+                assertNotNull(users.getUser("user" + i));
+            }
+            assertEquals("posts by user with " + shardCount + " shards",
+                    unsharded, new ArrayList<>(community.getPostsByUser(poster)));
+            assertEquals("user pages with " + shardCount + " shards", unshardedPage, pageIds(poster));
+        }
+    }
+
+    private static List<Integer> pageIds(User user) {
+        List<Integer> ids = new ArrayList<>();
+        FeedPage page = community.getUserPage(user, FeedPage.FIRST, 50);
+        while (true) {
+            page.getPosts().forEach(post -> ids.add(post.getId()));
+            if (!page.hasMore()) {
+                return ids;
+            }
+            page = community.getUserPage(user, page.getNextCursor(), 50);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+// Many threads released at once all call getInstance for the first time; every
+// manager must come out as a single instance. MindWellApp is left out because
+// constructing it opens the data directory and stdin. Nothing else in this JVM may
+// touch the managers first, which the build guarantees by forking per test class.
+public class SingletonStartupTest {
+    private static final int THREADS = 64;
+
+    @Test
+    public void concurrentFirstCallsShareOneInstance() throws Exception {
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Object[]>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return new Object[] {
+                        UserManager.getInstance(),
+                        ExerciseManager.getInstance(),
+                        CommunityManager.getInstance(),
+                        StorageEngine.getInstance(),
+                        NoteStore.getInstance()
+                };
+            }));
+        }
+        Object[] first = futures.get(0).get();
+        for (Future<Object[]> future : futures) {
+            Object[] seen = future.get();
+            for (int i = 0; i < seen.length; i++) {
+                assertSame("duplicate " + seen[i].getClass().getSimpleName(), first[i], seen[i]);
+            }
+        }
+        pool.shutdown();
+    }
+}
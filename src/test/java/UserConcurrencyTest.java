@@ -0,0 +1,104 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+// Writers append moods (some out of order) and completions to one user while readers
+// check that every snapshot they take is internally consistent and never goes backwards.
+public class UserConcurrencyTest {
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int PER_WRITER = 5_000;
+
+    @Test
+    public void readersSeeConsistentSnapshotsWhileWritersAppend() throws Exception {
+        ExerciseManager catalog = ExerciseManager.getInstance();
+        if (catalog.getAllExercises().isEmpty()) {
+            catalog.addDefaultExercises();
+        }
+        List<Exercise> exercises = catalog.getAllExercises();
+        User user = new User("stress", "pw");
+        long base = System.currentTimeMillis() - 90 * MoodHistory.DAY_MILLIS;
+        AtomicLong clock = new AtomicLong();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CyclicBarrier start = new CyclicBarrier(WRITERS + READERS);
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        List<Future<?>> writerFutures = new ArrayList<>();
+        List<Future<Long>> readerFutures = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writerFutures.add(pool.submit(() -> {
+                SplittableRandom random = new SplittableRandom(writer);
+                start.await();
+                for (int i = 0; i < PER_WRITER; i++) {
+                    // a coarse shared clock, like real entries many to a tick; one in a hundred
+                    // lands in the past and takes the copying late-insert path
+                    long offset = random.nextInt(100) == 0 ? random.nextLong(60 * MoodHistory.DAY_MILLIS) : 0;
+                    long timestamp = base + clock.getAndIncrement() / 64 * 60_000L - offset;
+                    user.addMoodEntry(new MoodEntry(1 + random.nextInt(10), "", timestamp));
+                    user.completeExercise(exercises.get(random.nextInt(exercises.size())), timestamp);
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            readerFutures.add(pool.submit(() -> {
+                start.await();
+                int lastMoods = 0;
+                int lastCompletions = 0;
+                long snapshots = 0;
+                do {
+                    MoodHistory history = user.getMoodHistory();
+                    int days = 0;
+                    for (MoodSummary day : history.dailyAverages(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2)) {
+                        days += day.getCount();
+                    }
+                    assertTrue("mood history went backwards", history.size() >= lastMoods);
+                    assertEquals("day index disagrees with rows", history.size(), days);
+                    lastMoods = history.size();
+
+                    CompletionLog completions = user.getCompletions();
+                    int counted = 0;
+                    long minutes = 0;
+                    for (Exercise exercise : exercises) {
+                        counted += completions.countOf(exercise.getId());
+                        minutes += completions.minutesOf(exercise.getId());
+                    }
+                    assertTrue("completions went backwards", completions.size() >= lastCompletions);
+                    assertEquals("completion counts disagree with records", completions.size(), counted);
+                    assertEquals("completion minutes disagree", completions.getTotalMinutes(), minutes);
+                    lastCompletions = completions.size();
+                    snapshots++;
+                } while (writing.get());
+                return snapshots;
+            }));
+        }
+        for (Future<?> future : writerFutures) {
+            future.get();
+        }
+        writing.set(false);
+        for (Future<Long> future : readerFutures) {
+            assertTrue(future.get() > 0);
+        }
+        pool.shutdown();
+
+        int expected = WRITERS * PER_WRITER;
+        MoodHistory history = user.getMoodHistory();
+        assertEquals("lost mood entries", expected, history.size());
+        assertEquals("mood stats missed entries", expected, user.getMoodStats().getCount());
+        assertEquals("lost completions", expected, user.getCompletedExerciseCount());
+        for (int i = 1; i < history.size(); i++) {
+            assertTrue("mood history out of order at " + i, history.timestampAt(i - 1) <= history.timestampAt(i));
+        }
+    }
+}